@@ -0,0 +1,30 @@
+package main;
+
+/**
+ * Scores many greedy candidates at once from primitive feature arrays.
+ *
+ * For each i below count:
+ * out[i] = gameTerm[game[i]] + roleTerm[role[i]] + personalityTerm[personality[i]]
+ *          - 2 * skillTerm[skill[i]] + bonus[i]
+ * where bonus is the candidate's own part of the score (random fairness minus any
+ * repeat-teammate penalty). A candidate that breaks the game cap has a gameTerm of
+ * negative infinity.
+ */
+public interface BatchScorer {
+
+    void score(int count, int[] game, int[] role, int[] personality, int[] skill, double[] bonus,
+               double[] gameTerm, double[] roleTerm, double[] personalityTerm, double[] skillTerm,
+               double[] out);
+
+    //Vector API scorer when jdk.incubator.vector is available and vector/src was compiled, scalar scorer otherwise
+    static BatchScorer create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (BatchScorer) Class.forName("main.VectorBatchScorer").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                Logger.getInstance().info("Vector API unavailable, using scalar scoring: " + e);
+            }
+        }
+        return new ScalarBatchScorer();
+    }
+}
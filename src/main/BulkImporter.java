@@ -0,0 +1,110 @@
+package main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Merges an external participant CSV into the roster.
+ *
+ * Rows are parsed, validated and checked against the roster index in parallel,
+ * then registered in file order so the first occurrence of an email wins.
+ * Every duplicate check is a hash lookup, so the import is linear in the file size.
+ */
+public class BulkImporter {
+    private static final Logger logger = Logger.getInstance();
+
+    public static ImportResult importFile(String sourceFile, String rosterFile, RosterIndex index,
+                                          VersionedRoster roster) throws FileProcessingException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get(sourceFile));
+        } catch (IOException e) {
+            logger.error("Failed to read import file: " + sourceFile, e);
+            throw new FileProcessingException("Failed to read import file: " + sourceFile, e);
+        }
+        if (lines.isEmpty()) throw new FileProcessingException("Import file is empty: " + sourceFile, null);
+
+        //Parse, validate and look up existing emails in parallel (row 0 is the header)
+        Participant[] parsed = new Participant[lines.size()];
+        boolean[] alreadyRegistered = new boolean[lines.size()];
+        LongAdder invalid = new LongAdder();
+        IntStream.range(1, lines.size()).parallel().forEach(i -> {
+            String line = lines.get(i);
+            if (line.trim().isEmpty()) return;
+            try {
+                Participant p = FileHandler.parseParticipant(line, i + 1);
+                if (p == null || !isValid(p)) {
+                    invalid.increment();
+                    return;
+                }
+                parsed[i] = p;
+                alreadyRegistered[i] = index.containsEmail(p.getEmail());
+            } catch (InvalidParticipantDataException e) {
+                invalid.increment();
+            }
+        });
+
+        //Deduplicate in file order, renumbering rows whose ID is already taken.
+        //IDs used in the file are reserved first so a new ID never clashes with a later row.
+        for (int i = 1; i < parsed.length; i++) {
+            if (parsed[i] != null) index.reserveId(parsed[i].getId());
+        }
+        List<Participant> imported = new ArrayList<>();
+        Set<String> fileEmails = new HashSet<>();
+        Set<String> fileIds = new HashSet<>();
+        int duplicates = 0;
+        int renumbered = 0;
+        for (int i = 1; i < parsed.length; i++) {
+            Participant p = parsed[i];
+            if (p == null) continue;
+            if (alreadyRegistered[i] || !fileEmails.add(RosterIndex.normalizeEmail(p.getEmail()))) {
+                duplicates++;
+                continue;
+            }
+            if (index.containsId(p.getId()) || fileIds.contains(p.getId())) {
+                p = withId(p, index.nextId());
+                renumbered++;
+            }
+            fileIds.add(p.getId());
+            imported.add(p);
+        }
+
+        //Index and roster before the file, so the roster watcher sees these rows as already known.
+        //A row the watcher or a registration claimed in the meantime counts as a duplicate.
+        List<Participant> added = new ArrayList<>(imported.size());
+        synchronized (index) {
+            for (Participant p : imported) {
+                if (index.add(p)) {
+                    added.add(p);
+                } else {
+                    duplicates++;
+                }
+            }
+            if (!added.isEmpty()) roster.appendAll(added);
+        }
+        imported = added;
+        FileHandler.appendParticipants(rosterFile, imported);
+
+        ImportResult result = new ImportResult(imported, duplicates, (int) invalid.sum(), renumbered);
+        logger.info("Imported " + sourceFile + ": " + result);
+        return result;
+    }
+
+    //Same rules as the registration survey
+    private static boolean isValid(Participant p) {
+        return !p.getName().isEmpty()
+                && p.getEmail().contains("@")
+                && !p.getPreferredGame().isEmpty()
+                && p.getSkillLevel() >= 1 && p.getSkillLevel() <= 10
+                && p.getPersonalityScore() >= 0 && p.getPersonalityScore() <= 100;
+    }
+
+    private static Participant withId(Participant p, String id) {
+        return new Participant(id, p.getName(), p.getEmail(), p.getPreferredGame(),
+                p.getSkillLevel(), p.getPreferredRole().toString(), p.getPersonalityScore());
+    }
+}
@@ -0,0 +1,424 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Pool of available participants for one TeamFormationTask attempt.
+ *
+ * A candidate's greedy score only depends on its game, role, personality and
+ * skill, so candidates sharing all four live in the same bucket and are scored
+ * once per pick. The per-feature score terms are cached and only recomputed when
+ * the team state they depend on changes (lazy invalidation), so a pick costs
+ * O(buckets) instead of a rescore of the whole pool.
+ *
+ * The non-empty buckets are kept as primitive feature arrays so a BatchScorer can
+ * score all of them in one pass.
+ *
+ * With a pair history, each candidate also carries a penalty for every current team
+ * member it has played with before. The count is its history bitset row ANDed with
+ * the team's bitset, which only has words for the few members so far. Penalties only
+ * grow while a team is built, so counts are checked lazily: a heap top is re-counted
+ * when the team changed, and re-pushed and passed over if its count went up.
+ */
+public class CandidateSelector {
+    private static final int MAX_PER_GAME = 2;
+    private static final double EXCLUDED = -999999;
+    private static final int ROLE_COUNT = Role.values().length;
+    private static final int PERSONALITY_COUNT = PersonalityType.values().length;
+    private static final double REPEAT_PENALTY = 8;
+
+    private static class Candidate {
+        final Participant person;
+        final int game;
+        final int role;
+        final int personality;
+        final int skill;
+        final int bucket;
+        final double jitter;
+        final int historyIndex;
+        final long[] partners;
+        boolean taken;
+        int repeats;
+        int stamp;
+        long checkedAt = -1;
+
+        Candidate(Participant person, int game, int role, int personality, int skill, int bucket, double jitter,
+                  int historyIndex, long[] partners) {
+            this.person = person;
+            this.game = game;
+            this.role = role;
+            this.personality = personality;
+            this.skill = skill;
+            this.bucket = bucket;
+            this.jitter = jitter;
+            this.historyIndex = historyIndex;
+            this.partners = partners;
+        }
+
+        double bonus() {
+            return jitter - repeats * REPEAT_PENALTY;
+        }
+    }
+
+    //Heap entry, stale once the candidate is taken or its bonus changed
+    private static class Entry {
+        final Candidate candidate;
+        final double bonus;
+        final int stamp;
+
+        Entry(Candidate candidate) {
+            this.candidate = candidate;
+            this.bonus = candidate.bonus();
+            this.stamp = candidate.stamp;
+        }
+
+        boolean isStale() {
+            return candidate.taken || candidate.stamp != stamp;
+        }
+    }
+
+    private static final BatchScorer scorer = BatchScorer.create();
+    private static final FormationMetrics metrics = FormationMetrics.getInstance();
+
+    // Pool
+    private final List<PriorityQueue<Entry>> buckets = new ArrayList<>();
+    private final int[] liveInBucket;
+    private final int[] bucketSlot;
+
+    // Non-empty buckets, one slot each, with the features and bonus of the bucket's top candidate
+    private final int[] activeBuckets;
+    private final int[] activeGame;
+    private final int[] activeRole;
+    private final int[] activePersonality;
+    private final int[] activeSkill;
+    private final double[] activeBonus;
+    private final double[] activeScores;
+    private int activeCount;
+    private final List<ArrayDeque<Candidate>> byPersonality = new ArrayList<>();
+    private final int[] skillValues;
+    private int remaining;
+
+    // Pair history, null when repeat teammates are not penalized
+    private final PairHistoryStore.View history;
+    private final List<Candidate> penalized = new ArrayList<>();
+
+    // Current team as a sparse bitset over history indices: one (word, mask) pair per used word
+    private int[] teamWords = new int[8];
+    private long[] teamMasks = new long[8];
+    private int teamWordCount;
+    private long teamVersion;
+    private boolean bonusesDirty;
+
+    // Current team
+    private int targetSize;
+    private int teamSize;
+    private int skillSum;
+    private long skillSquares;
+    private final int[] gameCounts;
+    private final boolean[] hasRole = new boolean[ROLE_COUNT];
+    private int uniqueRoles;
+    private final int[] personalityCounts = new int[PERSONALITY_COUNT];
+
+    // Cached score terms
+    private final double[] gameTerm;
+    private final boolean[] gameDirty;
+    private final double[] roleTerm = new double[ROLE_COUNT];
+    private boolean roleDirty;
+    private final double[] personalityTerm = new double[PERSONALITY_COUNT];
+    private boolean personalityDirty;
+    private final double[] skillTerm;
+    private boolean skillDirty;
+
+    //Constructor, personality picks follow the given order over the participant list
+    public CandidateSelector(List<Participant> participants, int[] order, Random random, PairHistoryStore.View history) {
+        this.history = history;
+        Map<String, Integer> gameIds = new HashMap<>();
+        TreeMap<Integer, Integer> skillIds = new TreeMap<>();
+        for (Participant p : participants) {
+            gameIds.putIfAbsent(p.getPreferredGame().toLowerCase(), gameIds.size());
+            skillIds.putIfAbsent(p.getSkillLevel(), 0);
+        }
+        skillValues = new int[skillIds.size()];
+        int s = 0;
+        for (Map.Entry<Integer, Integer> entry : skillIds.entrySet()) {
+            entry.setValue(s);
+            skillValues[s++] = entry.getKey();
+        }
+
+        int gameCount = gameIds.size();
+        int bucketCount = gameCount * ROLE_COUNT * PERSONALITY_COUNT * skillValues.length;
+        for (int b = 0; b < bucketCount; b++) {
+            buckets.add(new PriorityQueue<>((a, c) -> Double.compare(c.bonus, a.bonus)));
+        }
+        for (int t = 0; t < PERSONALITY_COUNT; t++) {
+            byPersonality.add(new ArrayDeque<>());
+        }
+        liveInBucket = new int[bucketCount];
+        bucketSlot = new int[bucketCount];
+        activeBuckets = new int[bucketCount];
+        activeGame = new int[bucketCount];
+        activeRole = new int[bucketCount];
+        activePersonality = new int[bucketCount];
+        activeSkill = new int[bucketCount];
+        activeBonus = new double[bucketCount];
+        activeScores = new double[bucketCount];
+
+        for (int index : order) {
+            Participant p = participants.get(index);
+            int game = gameIds.get(p.getPreferredGame().toLowerCase());
+            int role = p.getPreferredRole().ordinal();
+            int personality = p.getPersonalityType().ordinal();
+            int skill = skillIds.get(p.getSkillLevel());
+            int bucket = ((game * ROLE_COUNT + role) * PERSONALITY_COUNT + personality) * skillValues.length + skill;
+
+            // Random fairness: fixed per attempt instead of redrawn on every rescore
+            double jitter = random.nextDouble() * 3;
+            int historyIndex = (history == null) ? -1 : history.indexOf(p.getId());
+            long[] partners = (history == null) ? null : history.rowOf(historyIndex);
+            Candidate c = new Candidate(p, game, role, personality, skill, bucket, jitter, historyIndex, partners);
+            liveInBucket[bucket]++;
+            buckets.get(bucket).add(new Entry(c));
+            byPersonality.get(personality).addLast(c);
+        }
+        remaining = order.length;
+
+        for (int b = 0; b < bucketCount; b++) {
+            if (liveInBucket[b] == 0) continue;
+            Candidate top = buckets.get(b).peek().candidate;
+            int slot = activeCount++;
+            bucketSlot[b] = slot;
+            activeBuckets[slot] = b;
+            activeGame[slot] = top.game;
+            activeRole[slot] = top.role;
+            activePersonality[slot] = top.personality;
+            activeSkill[slot] = top.skill;
+            activeBonus[slot] = top.bonus();
+        }
+
+        gameCounts = new int[gameCount];
+        gameTerm = new double[gameCount];
+        gameDirty = new boolean[gameCount];
+        skillTerm = new double[skillValues.length];
+    }
+
+    public int remaining() {
+        return remaining;
+    }
+
+    //Resets the team state before a new team is built
+    public void startTeam(int targetSize) {
+        this.targetSize = targetSize;
+        teamSize = 0;
+        skillSum = 0;
+        skillSquares = 0;
+        uniqueRoles = 0;
+        Arrays.fill(gameCounts, 0);
+        Arrays.fill(hasRole, false);
+        Arrays.fill(personalityCounts, 0);
+        Arrays.fill(gameDirty, true);
+        roleDirty = true;
+        personalityDirty = true;
+        skillDirty = true;
+
+        // Penalties were relative to the previous team
+        teamWordCount = 0;
+        teamVersion++;
+        for (Candidate c : penalized) {
+            if (!c.taken && c.repeats != 0) {
+                c.repeats = 0;
+                c.stamp++;
+                buckets.get(c.bucket).add(new Entry(c));
+                bonusesDirty = true;
+            }
+        }
+        penalized.clear();
+    }
+
+    //Takes the next available participant of the given personality, in pool order
+    public Participant pollFirstOfType(PersonalityType type) {
+        ArrayDeque<Candidate> queue = byPersonality.get(type.ordinal());
+        while (!queue.isEmpty()) {
+            Candidate c = queue.pollFirst();
+            if (!c.taken) {
+                take(c);
+                return c.person;
+            }
+        }
+        return null;
+    }
+
+    //Takes the highest scoring participant for the current team, or null if nobody fits
+    public Participant pollBest() {
+        if (bonusesDirty) refreshBonuses();
+        refreshTerms();
+        scorer.score(activeCount, activeGame, activeRole, activePersonality, activeSkill, activeBonus,
+                gameTerm, roleTerm, personalityTerm, skillTerm, activeScores);
+
+        int bestSlot = -1;
+        double bestScore = EXCLUDED;
+        for (int i = 0; i < activeCount; i++) {
+            if (activeScores[i] > bestScore) {
+                bestScore = activeScores[i];
+                bestSlot = i;
+            }
+        }
+
+        metrics.recordGreedyPick(activeCount);
+        if (bestSlot < 0) return null;
+        Candidate best = peekLive(activeBuckets[bestSlot]);
+        take(best);
+        return best.person;
+    }
+
+    //Top live candidate of a bucket, with its repeat count checked against the current team
+    private Candidate peekLive(int bucket) {
+        PriorityQueue<Entry> queue = buckets.get(bucket);
+        while (true) {
+            Entry top = queue.peek();
+            if (top.isStale()) {
+                queue.poll();
+                continue;
+            }
+            Candidate c = top.candidate;
+            if (history == null || c.checkedAt == teamVersion) return c;
+
+            // Other entries can only be worth less than they say, so an unchanged top is the real top
+            c.checkedAt = teamVersion;
+            int repeats = repeatsWithTeam(c);
+            if (repeats == c.repeats) return c;
+            if (c.repeats == 0) penalized.add(c);
+            c.repeats = repeats;
+            c.stamp++;
+            queue.add(new Entry(c));
+        }
+    }
+
+    //Brings every bucket's bonus up to date after the team changed
+    private void refreshBonuses() {
+        for (int slot = 0; slot < activeCount; slot++) {
+            activeBonus[slot] = peekLive(activeBuckets[slot]).bonus();
+        }
+        bonusesDirty = false;
+    }
+
+    //Current team members the candidate has played with: its row ANDed with the team's words
+    private int repeatsWithTeam(Candidate c) {
+        long[] row = c.partners;
+        int count = 0;
+        for (int i = 0; i < teamWordCount; i++) {
+            int word = teamWords[i];
+            if (word < row.length) count += Long.bitCount(row[word] & teamMasks[i]);
+        }
+        return count;
+    }
+
+    private void addToTeamBits(int index) {
+        int word = index >>> 6;
+        int i = 0;
+        while (i < teamWordCount && teamWords[i] != word) i++;
+        if (i == teamWordCount) {
+            if (i == teamWords.length) {
+                teamWords = Arrays.copyOf(teamWords, i * 2);
+                teamMasks = Arrays.copyOf(teamMasks, i * 2);
+            }
+            teamWords[i] = word;
+            teamMasks[i] = 0;
+            teamWordCount++;
+        }
+        teamMasks[i] |= 1L << index;
+        teamVersion++;
+        bonusesDirty = true;
+    }
+
+    private void take(Candidate c) {
+        c.taken = true;
+        remaining--;
+        if (history != null && c.historyIndex >= 0) addToTeamBits(c.historyIndex);
+        if (--liveInBucket[c.bucket] == 0) {
+            removeActive(c.bucket);
+        } else {
+            activeBonus[bucketSlot[c.bucket]] = peekLive(c.bucket).bonus();
+        }
+
+        int skill = skillValues[c.skill];
+        teamSize++;
+        skillSum += skill;
+        skillSquares += (long) skill * skill;
+        gameCounts[c.game]++;
+        gameDirty[c.game] = true;
+        if (!hasRole[c.role]) {
+            hasRole[c.role] = true;
+            uniqueRoles++;
+        }
+        personalityCounts[c.personality]++;
+        // Role bonus, personality fit and skill spread all depend on the team size
+        roleDirty = true;
+        personalityDirty = true;
+        skillDirty = true;
+    }
+
+    //Moves the last active slot into the emptied bucket's slot
+    private void removeActive(int bucket) {
+        int slot = bucketSlot[bucket];
+        int last = --activeCount;
+        int moved = activeBuckets[last];
+        activeBuckets[slot] = moved;
+        activeGame[slot] = activeGame[last];
+        activeRole[slot] = activeRole[last];
+        activePersonality[slot] = activePersonality[last];
+        activeSkill[slot] = activeSkill[last];
+        activeBonus[slot] = activeBonus[last];
+        bucketSlot[moved] = slot;
+    }
+
+    //Recomputes only the score terms whose inputs changed since the last pick
+    private void refreshTerms() {
+        for (int g = 0; g < gameTerm.length; g++) {
+            if (!gameDirty[g]) continue;
+            if (gameCounts[g] >= MAX_PER_GAME) gameTerm[g] = Double.NEGATIVE_INFINITY;
+            else gameTerm[g] = gameCounts[g] == 0 ? 20 : 10;
+            gameDirty[g] = false;
+        }
+
+        if (roleDirty) {
+            boolean needsMoreRoles = targetSize > 5 && teamSize >= 3 && uniqueRoles < 3;
+            for (int r = 0; r < ROLE_COUNT; r++) {
+                if (hasRole[r]) roleTerm[r] = 0;
+                else roleTerm[r] = needsMoreRoles ? 25 : 15;
+            }
+            roleDirty = false;
+        }
+
+        if (personalityDirty) {
+            int leaders = personalityCounts[PersonalityType.LEADER.ordinal()];
+            int thinkers = personalityCounts[PersonalityType.THINKER.ordinal()];
+
+            personalityTerm[PersonalityType.LEADER.ordinal()] = leaders == 0 ? 12 : -20;
+
+            if (thinkers == 0) personalityTerm[PersonalityType.THINKER.ordinal()] = 10;
+            else if (thinkers == 1 && targetSize > 3) personalityTerm[PersonalityType.THINKER.ordinal()] = 8;
+            else personalityTerm[PersonalityType.THINKER.ordinal()] = -10;
+
+            if (leaders > 0 && thinkers > 0) personalityTerm[PersonalityType.BALANCED.ordinal()] = 6;
+            else if (teamSize >= targetSize - 2) personalityTerm[PersonalityType.BALANCED.ordinal()] = 4;
+            else personalityTerm[PersonalityType.BALANCED.ordinal()] = 2;
+            personalityDirty = false;
+        }
+
+        if (skillDirty) {
+            for (int s = 0; s < skillValues.length; s++) {
+                skillTerm[s] = skillStdDevWith(skillValues[s]);
+            }
+            skillDirty = false;
+        }
+    }
+
+    //Standard deviation of the team's skills if a member with this skill joined
+    private double skillStdDevWith(int skill) {
+        if (teamSize == 0) return 0;
+        int count = teamSize + 1;
+        double mean = (double) (skillSum + skill) / count;
+        double variance = (double) (skillSquares + (long) skill * skill) / count - mean * mean;
+        return Math.sqrt(Math.max(0, variance));
+    }
+}
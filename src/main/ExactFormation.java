@@ -0,0 +1,522 @@
+package main;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+/**
+ * Exact branch-and-bound solver for small rosters (up to MAX_PARTICIPANTS people).
+ *
+ * Participants are assigned depth-first, leaders first, then thinkers, then everyone
+ * else, each to a team or to the bench. Hard rules prune the tree: team size, at most
+ * 2 per game, exactly one leader and one or two thinkers per team. Teams are
+ * interchangeable, so a participant may only open the first empty team. Each node is
+ * bounded by an optimistic calculateQualityScore: every open slot may still add a new
+ * game and role, and every team average may still land anywhere the remaining skills
+ * allow, which gives the smallest possible spread of averages.
+ *
+ * The top levels of the tree are split into fork-join tasks that share one incumbent,
+ * seeded from greedy attempts with local search. If the time limit or a stop request
+ * cuts the search short, the best bound of any unexplored subtree gives the gap.
+ */
+public class ExactFormation {
+    private static final Logger logger = Logger.getInstance();
+    public static final int MAX_PARTICIPANTS = 40;
+    public static final long DEFAULT_TIME_LIMIT_MS = Long.getLong("teammate.exact.timeLimitMs", 10_000);
+    private static final int MAX_PER_GAME = 2;
+    private static final int SPLIT_DEPTH = 8;
+    private static final int SEED_ATTEMPTS = 8;
+    private static final int SEED_SEARCH_TRIES = 2000;
+    private static final int ROLE_COUNT = Role.values().length;
+    private static volatile String lastReport = "";
+
+    // Roster in branching order, as primitive columns
+    private final Participant[] order;
+    private final int[] game;
+    private final int[] role;
+    private final PersonalityType[] personality;
+    private final int[] skill;
+    private final int[] leadersFrom;    // leaders among order[i..]
+    private final int[] thinkersFrom;   // thinkers among order[i..]
+    private final int[] minSkillFrom;
+    private final int[] maxSkillFrom;
+
+    private final int teams;
+    private final int teamSize;
+    private final int benchSize;
+    private final int minThinkers;
+    private final double[][] bestRoleScore;   // [have][most reachable]: roleScore is not monotone for large teams
+    private final long deadline;
+    private final FormationMonitor monitor;
+
+    // Shared by all search tasks
+    private volatile double incumbent = Double.NEGATIVE_INFINITY;
+    private int[] incumbentTeamOf;
+    private final AtomicLong nodes = new AtomicLong();
+    private final DoubleAccumulator openBound = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+    private volatile boolean cutOff;
+
+    private ExactFormation(List<Participant> participants, int teamSize, int numberOfTeams, long timeLimitMillis,
+                           FormationMonitor monitor) {
+        List<Participant> sorted = new ArrayList<>(participants);
+        sorted.sort(Comparator.comparingInt((Participant p) -> branchRank(p.getPersonalityType()))
+                .thenComparing(Comparator.comparingInt(Participant::getSkillLevel).reversed()));
+        int n = sorted.size();
+
+        this.order = sorted.toArray(new Participant[0]);
+        this.game = new int[n];
+        this.role = new int[n];
+        this.personality = new PersonalityType[n];
+        this.skill = new int[n];
+        Map<String, Integer> gameIndex = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Participant p = order[i];
+            game[i] = gameIndex.computeIfAbsent(p.getPreferredGame().toLowerCase(Locale.ROOT), g -> gameIndex.size());
+            role[i] = p.getPreferredRole().ordinal();
+            personality[i] = p.getPersonalityType();
+            skill[i] = p.getSkillLevel();
+        }
+
+        this.leadersFrom = new int[n + 1];
+        this.thinkersFrom = new int[n + 1];
+        this.minSkillFrom = new int[n + 1];
+        this.maxSkillFrom = new int[n + 1];
+        minSkillFrom[n] = Integer.MAX_VALUE;
+        maxSkillFrom[n] = Integer.MIN_VALUE;
+        for (int i = n - 1; i >= 0; i--) {
+            leadersFrom[i] = leadersFrom[i + 1] + (personality[i] == PersonalityType.LEADER ? 1 : 0);
+            thinkersFrom[i] = thinkersFrom[i + 1] + (personality[i] == PersonalityType.THINKER ? 1 : 0);
+            minSkillFrom[i] = Math.min(minSkillFrom[i + 1], skill[i]);
+            maxSkillFrom[i] = Math.max(maxSkillFrom[i + 1], skill[i]);
+        }
+
+        this.teams = numberOfTeams;
+        this.teamSize = teamSize;
+        this.benchSize = n - numberOfTeams * teamSize;
+        this.minThinkers = Math.min(1, teamSize - 1);
+        int maxRoles = Math.min(ROLE_COUNT, teamSize);
+        this.bestRoleScore = new double[maxRoles + 1][maxRoles + 1];
+        for (int low = 0; low <= maxRoles; low++) {
+            double best = Double.NEGATIVE_INFINITY;
+            for (int high = low; high <= maxRoles; high++) {
+                best = Math.max(best, roleScore(high));
+                bestRoleScore[low][high] = best;
+            }
+        }
+        this.deadline = System.currentTimeMillis() + timeLimitMillis;
+        this.monitor = monitor;
+    }
+
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                                       FormationMonitor monitor) {
+        return formTeams(participants, teamSize, numberOfTeams, seed, DEFAULT_TIME_LIMIT_MS, monitor);
+    }
+
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                                       long timeLimitMillis, FormationMonitor monitor) {
+        if (participants.size() > MAX_PARTICIPANTS) {
+            throw new IllegalArgumentException("Exact search is limited to " + MAX_PARTICIPANTS +
+                    " participants, got " + participants.size());
+        }
+        if (numberOfTeams * teamSize > participants.size()) return new ArrayList<>();
+        return new ExactFormation(participants, teamSize, numberOfTeams, timeLimitMillis, monitor).solve(seed);
+    }
+
+    //Outcome of the last exact search: proven optimum, or best score with its gap
+    public static String getLastReport() {
+        return lastReport;
+    }
+
+    private List<Team> solve(long seed) {
+        long start = System.currentTimeMillis();
+        seedIncumbent(participantsInOrder(), seed);
+
+        State root = new State();
+        double rootBound = bound(root, 0, new Scratch());
+        if (feasible(root, 0)) {
+            ForkJoinPool.commonPool().invoke(new SearchTask(root, 0));
+        }
+        long millis = System.currentTimeMillis() - start;
+
+        if (incumbentTeamOf == null) {
+            lastReport = String.format("no assignment meets the hard rules (%d nodes, %d ms)", nodes.get(), millis);
+            logger.info("Exact formation: " + lastReport);
+            return new ArrayList<>();
+        }
+
+        List<Team> result = toTeams(incumbentTeamOf);
+        double score = TeamBuilder.calculateQualityScore(result);
+        if (cutOff) {
+            monitor.markTimeLimited();   // another run with more time could do better, so not cached
+            double upper = Math.max(incumbent, openBound.get());
+            lastReport = String.format("best %.2f, upper bound %.2f, gap %.2f (%.2f%%), stopped after %d nodes, %d ms",
+                    score, upper, upper - incumbent, 100 * (upper - incumbent) / upper, nodes.get(), millis);
+        } else {
+            lastReport = String.format("proven optimum %.2f (root bound %.2f), %d nodes, %d ms",
+                    score, rootBound, nodes.get(), millis);
+        }
+        logger.info("Exact formation: " + lastReport);
+        return result;
+    }
+
+    private List<Participant> participantsInOrder() {
+        return Arrays.asList(order);
+    }
+
+    //Greedy attempts with local search give the search a good score to beat from the start
+    private void seedIncumbent(List<Participant> participants, long seed) {
+        Random random = new Random(seed);
+        for (int attempt = 0; attempt < SEED_ATTEMPTS; attempt++) {
+            List<List<Team>> results = new ArrayList<>();
+            new TeamFormationTask(participants, teamSize, results, teams, random.nextLong()).run();
+            if (results.isEmpty()) return;   // interrupted, the search starts without an incumbent
+            List<Team> candidate = results.get(0);
+            LocalSearch.improve(candidate, participants, random, SEED_SEARCH_TRIES);
+
+            int[] teamOf = toAssignment(candidate);
+            if (teamOf == null) continue;
+            State state = new State();
+            boolean valid = true;
+            for (int i = 0; i < order.length && valid; i++) {
+                valid = teamOf[i] < 0 ? state.bench < benchSize : fits(state, i, teamOf[i]);
+                if (valid) state.place(i, teamOf[i]);
+            }
+            if (valid && complete(state)) offer(state);
+        }
+    }
+
+    //Team index per participant in branching order (-1 for the bench), null if the teams do not fit the shape
+    private int[] toAssignment(List<Team> candidate) {
+        if (candidate.size() != teams) return null;
+        Map<Participant, Integer> teamOf = new IdentityHashMap<>();
+        for (int k = 0; k < candidate.size(); k++) {
+            if (candidate.get(k).getSize() != teamSize) return null;
+            for (Participant p : candidate.get(k).getMembers()) {
+                teamOf.put(p, k);
+            }
+        }
+        // Renumber teams by first appearance so the assignment respects the symmetry rule
+        int[] relabel = new int[teams];
+        Arrays.fill(relabel, -1);
+        int next = 0;
+        int[] assignment = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            Integer k = teamOf.get(order[i]);
+            if (k == null) {
+                assignment[i] = -1;
+                continue;
+            }
+            if (relabel[k] < 0) relabel[k] = next++;
+            assignment[i] = relabel[k];
+        }
+        return assignment;
+    }
+
+    private List<Team> toTeams(int[] teamOf) {
+        List<Team> result = new ArrayList<>();
+        for (int k = 0; k < teams; k++) {
+            result.add(new Team(k + 1));
+        }
+        for (int i = 0; i < order.length; i++) {
+            if (teamOf[i] >= 0) result.get(teamOf[i]).addMember(order[i]);
+        }
+        return result;
+    }
+
+    //Per-node search state, copied when a subtree becomes its own task
+    private final class State {
+        final int[] teamOf = new int[order.length];
+        final int[] members = new int[teams];
+        final int[][] gameCounts = new int[teams][order.length];
+        final int[][] roleCounts = new int[teams][ROLE_COUNT];
+        final int[] uniqueGames = new int[teams];
+        final int[] uniqueRoles = new int[teams];
+        final int[] leaders = new int[teams];
+        final int[] thinkers = new int[teams];
+        final int[] skillSum = new int[teams];
+        int bench;
+        int openedTeams;
+
+        State copy() {
+            State c = new State();
+            System.arraycopy(teamOf, 0, c.teamOf, 0, teamOf.length);
+            System.arraycopy(members, 0, c.members, 0, teams);
+            for (int k = 0; k < teams; k++) {
+                System.arraycopy(gameCounts[k], 0, c.gameCounts[k], 0, order.length);
+                System.arraycopy(roleCounts[k], 0, c.roleCounts[k], 0, ROLE_COUNT);
+            }
+            System.arraycopy(uniqueGames, 0, c.uniqueGames, 0, teams);
+            System.arraycopy(uniqueRoles, 0, c.uniqueRoles, 0, teams);
+            System.arraycopy(leaders, 0, c.leaders, 0, teams);
+            System.arraycopy(thinkers, 0, c.thinkers, 0, teams);
+            System.arraycopy(skillSum, 0, c.skillSum, 0, teams);
+            c.bench = bench;
+            c.openedTeams = openedTeams;
+            return c;
+        }
+
+        void place(int i, int k) {
+            teamOf[i] = k;
+            if (k < 0) {
+                bench++;
+                return;
+            }
+            if (members[k]++ == 0) openedTeams++;
+            if (gameCounts[k][game[i]]++ == 0) uniqueGames[k]++;
+            if (roleCounts[k][role[i]]++ == 0) uniqueRoles[k]++;
+            if (personality[i] == PersonalityType.LEADER) leaders[k]++;
+            if (personality[i] == PersonalityType.THINKER) thinkers[k]++;
+            skillSum[k] += skill[i];
+        }
+
+        void remove(int i, int k) {
+            if (k < 0) {
+                bench--;
+                return;
+            }
+            if (--members[k] == 0) openedTeams--;
+            if (--gameCounts[k][game[i]] == 0) uniqueGames[k]--;
+            if (--roleCounts[k][role[i]] == 0) uniqueRoles[k]--;
+            if (personality[i] == PersonalityType.LEADER) leaders[k]--;
+            if (personality[i] == PersonalityType.THINKER) thinkers[k]--;
+            skillSum[k] -= skill[i];
+        }
+    }
+
+    //Per-task buffers, so bounding and branching allocate nothing per node
+    private final class Scratch {
+        final double[] low = new double[teams];
+        final double[] high = new double[teams];
+        final int[][] moves = new int[order.length + 1][teams + 1];   // one row per depth, live while recursing
+    }
+
+    private final class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;   // never serialized, only run on the fork-join pool
+        private final State state;
+        private final int index;
+
+        SearchTask(State state, int index) {
+            this.state = state;
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            Scratch scratch = new Scratch();
+            if (index >= SPLIT_DEPTH || index >= order.length) {
+                search(state, index, scratch);
+                return;
+            }
+            nodes.incrementAndGet();
+            if (stopping()) {
+                openBound.accumulate(bound(state, index, scratch));
+                return;
+            }
+            if (bound(state, index, scratch) <= incumbent) return;
+
+            List<SearchTask> children = new ArrayList<>();
+            int[] moves = scratch.moves[index];
+            int count = moves(state, index, moves);
+            for (int m = 0; m < count; m++) {
+                int k = moves[m];
+                State child = state.copy();
+                child.place(index, k);
+                if (feasible(child, index + 1)) children.add(new SearchTask(child, index + 1));
+            }
+            invokeAll(children);
+        }
+    }
+
+    //Sequential depth-first search below the split depth
+    private void search(State state, int i, Scratch scratch) {
+        nodes.incrementAndGet();
+        if (i == order.length) {
+            if (complete(state)) offer(state);
+            return;
+        }
+        double bound = bound(state, i, scratch);
+        if (bound <= incumbent) return;
+        if (stopping()) {
+            openBound.accumulate(bound);
+            return;
+        }
+
+        int[] moves = scratch.moves[i];
+        int count = moves(state, i, moves);
+        for (int m = 0; m < count; m++) {
+            int k = moves[m];
+            state.place(i, k);
+            if (feasible(state, i + 1)) search(state, i + 1, scratch);
+            state.remove(i, k);
+            if (cutOff) {
+                openBound.accumulate(bound);   // the rest of this subtree was not explored
+                return;
+            }
+        }
+    }
+
+    private boolean stopping() {
+        if (!cutOff && (System.currentTimeMillis() > deadline || monitor.isStopRequested())) {
+            cutOff = true;
+        }
+        return cutOff;
+    }
+
+    //Fills in the teams participant i may join (opened teams plus the first empty one), then the bench,
+    //and returns how many there are
+    private int moves(State state, int i, int[] candidates) {
+        int count = 0;
+        int last = Math.min(state.openedTeams, teams - 1);
+        for (int k = 0; k <= last; k++) {
+            if (fits(state, i, k)) candidates[count++] = k;
+        }
+        if (state.bench < benchSize) candidates[count++] = -1;
+        return count;
+    }
+
+    private boolean fits(State state, int i, int k) {
+        if (state.members[k] >= teamSize) return false;
+        if (state.gameCounts[k][game[i]] >= MAX_PER_GAME) return false;
+
+        int leaders = state.leaders[k];
+        int thinkers = state.thinkers[k];
+        if (personality[i] == PersonalityType.LEADER) {
+            if (leaders >= 1) return false;
+            leaders++;
+        } else if (personality[i] == PersonalityType.THINKER) {
+            if (thinkers >= 2) return false;
+            thinkers++;
+        }
+        // Keep room for the leader and thinkers this team still needs
+        int reserved = (leaders == 0 ? 1 : 0) + Math.max(0, minThinkers - thinkers);
+        return teamSize - (state.members[k] + 1) >= reserved;
+    }
+
+    //Can the people from index i on still complete every team?
+    private boolean feasible(State state, int i) {
+        int remaining = order.length - i;
+        int openSlots = 0;
+        int needLeaders = 0;
+        int needThinkers = 0;
+        for (int k = 0; k < teams; k++) {
+            openSlots += teamSize - state.members[k];
+            if (state.leaders[k] == 0) needLeaders++;
+            needThinkers += Math.max(0, minThinkers - state.thinkers[k]);
+        }
+        return openSlots <= remaining
+                && remaining - openSlots <= benchSize - state.bench
+                && needLeaders <= leadersFrom[i]
+                && needThinkers <= thinkersFrom[i];
+    }
+
+    private boolean complete(State state) {
+        for (int k = 0; k < teams; k++) {
+            if (state.members[k] != teamSize || state.leaders[k] != 1 || state.thinkers[k] < minThinkers) return false;
+        }
+        return true;
+    }
+
+    //Optimistic calculateQualityScore of any completion of this state
+    private double bound(State state, int i, Scratch scratch) {
+        double games = 0;
+        double roles = 0;
+        double[] low = scratch.low;
+        double[] high = scratch.high;
+        for (int k = 0; k < teams; k++) {
+            int open = teamSize - state.members[k];
+            games += 100.0 * Math.min(teamSize, state.uniqueGames[k] + open) / teamSize;
+            int reachable = Math.min(bestRoleScore.length - 1, state.uniqueRoles[k] + open);
+            roles += bestRoleScore[state.uniqueRoles[k]][reachable];
+            low[k] = open == 0 ? state.skillSum[k] : state.skillSum[k] + (double) open * minSkillFrom[i];
+            high[k] = open == 0 ? state.skillSum[k] : state.skillSum[k] + (double) open * maxSkillFrom[i];
+            low[k] /= teamSize;
+            high[k] /= teamSize;
+        }
+        double balance = Math.max(0, 100 - minimumVariance(low, high));
+        return constantTerms() + balance * 20 + games / teams * 15 + roles / teams * 12;
+    }
+
+    //Exact score of a complete assignment, the same formula as calculateQualityScore
+    private double score(State state) {
+        double games = 0;
+        double roles = 0;
+        double sum = 0;
+        double[] averages = new double[teams];
+        for (int k = 0; k < teams; k++) {
+            games += 100.0 * state.uniqueGames[k] / teamSize;
+            roles += roleScore(state.uniqueRoles[k]);
+            averages[k] = (double) state.skillSum[k] / teamSize;
+            sum += averages[k];
+        }
+        double mean = sum / teams;
+        double squares = 0;
+        for (double average : averages) {
+            squares += (average - mean) * (average - mean);
+        }
+        double balance = Math.max(0, 100 - squares / teams);
+        return constantTerms() + balance * 20 + games / teams * 15 + roles / teams * 12;
+    }
+
+    private double roleScore(int uniqueRoles) {
+        if (teamSize > 5 && uniqueRoles < 3) return 30;
+        return 100.0 * uniqueRoles / teamSize;
+    }
+
+    //Personality mix is fixed by the hard rules (one leader, thinkers in range), and every slot is filled
+    private double constantTerms() {
+        double personalityMix = 50 + 30 + (minThinkers > 0 ? 20 : 10);
+        return personalityMix * 10 + teams * teamSize * 0.5;
+    }
+
+    //Smallest variance of team averages when each average may fall anywhere in [low, high]
+    private static double minimumVariance(double[] low, double[] high) {
+        double from = Double.MAX_VALUE;
+        double to = -Double.MAX_VALUE;
+        for (int k = 0; k < low.length; k++) {
+            from = Math.min(from, low[k]);
+            to = Math.max(to, high[k]);
+        }
+        // Spread around a centre c is convex in c, so a ternary search finds the best centre
+        for (int iteration = 0; iteration < 40 && to - from > 1e-9; iteration++) {
+            double a = from + (to - from) / 3;
+            double b = to - (to - from) / 3;
+            if (spread(low, high, a) <= spread(low, high, b)) {
+                to = b;
+            } else {
+                from = a;
+            }
+        }
+        return spread(low, high, (from + to) / 2) / low.length;
+    }
+
+    private static double spread(double[] low, double[] high, double centre) {
+        double total = 0;
+        for (int k = 0; k < low.length; k++) {
+            double distance = centre < low[k] ? low[k] - centre : (centre > high[k] ? centre - high[k] : 0);
+            total += distance * distance;
+        }
+        return total;
+    }
+
+    private void offer(State state) {
+        double value = score(state);
+        if (value <= incumbent) return;
+        synchronized (this) {
+            if (value <= incumbent) return;
+            incumbent = value;
+            incumbentTeamOf = state.teamOf.clone();
+        }
+        monitor.unitCompleted(value);
+    }
+
+    //Leaders first, then thinkers: they have the tightest rules, so the tree narrows early
+    private static int branchRank(PersonalityType type) {
+        return switch (type) {
+            case LEADER -> 0;
+            case THINKER -> 1;
+            default -> 2;
+        };
+    }
+}
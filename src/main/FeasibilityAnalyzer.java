@@ -0,0 +1,150 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Proves a formation request infeasible before any search starts, using counting
+ * bounds on the personality, game and role histograms of the roster.
+ *
+ * Every bound is monotone in the number of teams, so the largest achievable team
+ * count is found by binary search.
+ *
+ * Only the rules the formation cannot bend are problems: a leader and a thinker for
+ * every team, and the per-game cap. A short roster (fewer teams are formed), no second
+ * thinker for teams over 3, too few balanced members and too few roles for large teams
+ * only lower the quality score, so they are reported as warnings and the formation goes ahead.
+ */
+public class FeasibilityAnalyzer {
+    private static final Logger logger = Logger.getInstance();
+    private static final int MAX_PER_GAME = 2;
+    private static final int MIN_ROLES_LARGE_TEAM = 3;
+
+    //Roster snapshots bring their histograms along, other lists are counted once here
+    public static FeasibilityReport analyze(List<Participant> participants, int numberOfTeams, int teamSize) {
+        RosterStatistics statistics = (participants instanceof VersionedRoster.Snapshot snapshot)
+                ? snapshot.getStatistics() : RosterStatistics.of(participants);
+        return analyze(statistics, numberOfTeams, teamSize);
+    }
+
+    public static FeasibilityReport analyze(RosterStatistics statistics, int numberOfTeams, int teamSize) {
+        return analyze(statistics.size(), statistics.getPersonalityCounts(), statistics.getGameCounts(),
+                statistics.getRoleCounts(), numberOfTeams, teamSize);
+    }
+
+    //Works on the histograms only, so callers that already keep them pay nothing per participant
+    public static FeasibilityReport analyze(int rosterSize, int[] personalityCounts, int[] gameCounts,
+                                            int[] roleCounts, int numberOfTeams, int teamSize) {
+        Histograms h = new Histograms(rosterSize, personalityCounts, gameCounts, roleCounts, teamSize);
+
+        List<String> problems = h.problemsFor(numberOfTeams);
+        int maxTeams = numberOfTeams;
+        if (!problems.isEmpty()) {
+            int low = 0;
+            int high = numberOfTeams - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (h.problemsFor(mid).isEmpty()) low = mid;
+                else high = mid - 1;
+            }
+            maxTeams = low;
+        }
+
+        logger.info(String.format("Personality check: Leaders %d/%d, Thinkers %d/%d, Balanced %d/%d",
+                h.leaders, numberOfTeams, h.thinkers, numberOfTeams * h.thinkersPerTeam,
+                h.balanced, numberOfTeams * h.balancedPerTeam));
+        FeasibilityReport report = new FeasibilityReport(numberOfTeams, teamSize, maxTeams, problems,
+                h.warningsFor(numberOfTeams));
+        logger.info("Feasibility: " + report);
+        return report;
+    }
+
+    private static class Histograms {
+        final int rosterSize;
+        final int leaders;
+        final int thinkers;
+        final int balanced;
+        final int[] gameCounts;
+        final int[] roleCounts;
+        final int teamSize;
+        final int thinkersPerTeam;
+        final int balancedPerTeam;
+
+        Histograms(int rosterSize, int[] personalityCounts, int[] gameCounts, int[] roleCounts, int teamSize) {
+            this.rosterSize = rosterSize;
+            this.leaders = personalityCounts[PersonalityType.LEADER.ordinal()];
+            this.thinkers = personalityCounts[PersonalityType.THINKER.ordinal()];
+            this.balanced = personalityCounts[PersonalityType.BALANCED.ordinal()];
+            this.gameCounts = gameCounts;
+            this.roleCounts = roleCounts;
+            this.teamSize = teamSize;
+            this.thinkersPerTeam = (teamSize > 3) ? 2 : 1;
+            this.balancedPerTeam = Math.max(0, teamSize - 1 - thinkersPerTeam);
+        }
+
+        //Rules no formation can get around, for the teams the roster can actually fill
+        List<String> problemsFor(int requestedTeams) {
+            List<String> problems = new ArrayList<>();
+            if (requestedTeams <= 0) return problems;
+            int teams = formableTeams(requestedTeams);
+
+            //1 leader and at least 1 thinker per team, the second thinker is only a preference
+            if (leaders < teams) {
+                problems.add(String.format("need %d leaders, have %d", teams, leaders));
+            }
+            if (thinkers < teams) {
+                problems.add(String.format("need %d thinkers, have %d", teams, thinkers));
+            }
+
+            //At most 2 per game in a team, so each game can fill at most 2 slots per team
+            long slots = Math.min((long) teams * teamSize, rosterSize);
+            long gameSlots = 0;
+            for (int count : gameCounts) {
+                gameSlots += Math.min(count, (long) MAX_PER_GAME * teams);
+            }
+            if (gameSlots < slots) {
+                problems.add(String.format("max %d per game allows only %d of %d slots to be filled",
+                        MAX_PER_GAME, gameSlots, slots));
+            }
+            return problems;
+        }
+
+        //A short roster gives only as many full teams as it can fill, or one partial team
+        int formableTeams(int teams) {
+            return Math.min(teams, Math.max(1, rosterSize / teamSize));
+        }
+
+        //Shortfalls that only leave teams out or lower their score
+        List<String> warningsFor(int teams) {
+            List<String> warnings = new ArrayList<>();
+            if (teams <= 0) return warnings;
+
+            long slots = (long) teams * teamSize;
+            int formed = formableTeams(teams);
+            if (slots > rosterSize) {
+                warnings.add(String.format("need %d participants, have %d, only %d teams can be formed",
+                        slots, rosterSize, formed));
+            }
+            if (thinkers >= formed && thinkers < (long) formed * thinkersPerTeam) {
+                warnings.add(String.format("%d thinkers for %d teams, some teams get only one",
+                        thinkers, formed));
+            }
+            if (balanced < (long) formed * balancedPerTeam) {
+                warnings.add(String.format("need %d balanced members, have %d",
+                        (long) formed * balancedPerTeam, balanced));
+            }
+
+            //Teams larger than 5 need 3+ distinct roles, each role counts once per team
+            if (teamSize > 5) {
+                long roleSlots = 0;
+                for (int count : roleCounts) {
+                    roleSlots += Math.min(count, formed);
+                }
+                if (roleSlots < (long) MIN_ROLES_LARGE_TEAM * formed) {
+                    warnings.add(String.format("teams over 5 need %d distinct roles each, roster covers %d of %d",
+                            MIN_ROLES_LARGE_TEAM, roleSlots, (long) MIN_ROLES_LARGE_TEAM * formed));
+                }
+            }
+            return warnings;
+        }
+    }
+}
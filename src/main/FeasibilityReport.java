@@ -0,0 +1,50 @@
+package main;
+
+import java.util.Collections;
+import java.util.List;
+
+//Result of a feasibility check: whether the request can be met, how many teams are possible,
+//and the shortfalls that only make the teams partial or weaker
+public class FeasibilityReport {
+    private final int requestedTeams;
+    private final int teamSize;
+    private final int maxTeams;
+    private final List<String> problems;
+    private final List<String> warnings;
+
+    //Constructors
+    public FeasibilityReport(int requestedTeams, int teamSize, int maxTeams, List<String> problems) {
+        this(requestedTeams, teamSize, maxTeams, problems, List.of());
+    }
+
+    public FeasibilityReport(int requestedTeams, int teamSize, int maxTeams, List<String> problems,
+                             List<String> warnings) {
+        this.requestedTeams = requestedTeams;
+        this.teamSize = teamSize;
+        this.maxTeams = maxTeams;
+        this.problems = Collections.unmodifiableList(problems);
+        this.warnings = Collections.unmodifiableList(warnings);
+    }
+
+    public boolean isFeasible() { return problems.isEmpty(); }
+    public int getRequestedTeams() { return requestedTeams; }
+    public int getTeamSize() { return teamSize; }
+    public int getMaxTeams() { return maxTeams; }
+    public List<String> getProblems() { return problems; }
+    public List<String> getWarnings() { return warnings; }
+
+    //True if this report answers the given request
+    public boolean isFor(int numberOfTeams, int size) {
+        return requestedTeams == numberOfTeams && teamSize == size;
+    }
+
+    @Override
+    public String toString() {
+        if (isFeasible()) {
+            String result = String.format("%d teams of %d are feasible", requestedTeams, teamSize);
+            return warnings.isEmpty() ? result : result + ", with warnings: " + String.join("; ", warnings);
+        }
+        return String.format("%d teams of %d are infeasible (max %d): %s",
+                requestedTeams, teamSize, maxTeams, String.join("; ", problems));
+    }
+}
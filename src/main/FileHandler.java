@@ -6,19 +6,51 @@ import java.util.List;
 
 public class FileHandler {
     private static final Logger logger = Logger.getInstance();
+    private static final FormationMetrics metrics = FormationMetrics.getInstance();
 
     //Reading participants from CSV
 
     public static List<Participant> readParticipants(String filename) throws FileProcessingException {
-        List<Participant> participants = new ArrayList<>();
-        File file = new File(filename);
+        long start = System.nanoTime();
+        RosterLoadEvent event = new RosterLoadEvent();
+        event.begin();
+        List<Participant> participants = parseParticipants(filename, true);
 
+        System.out.println("Successfully loaded " + participants.size() + " participants.");
+        logger.info("Loaded " + participants.size() + " participants from " + filename);
+        metrics.recordLoad(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.file = filename;
+            event.rosterSize = participants.size();
+            event.commit();
+        }
+        return participants;
+    }
+
+    //Same parse for background reloads: nothing on the console, no load metrics or events, skipped rows go to the log
+    static List<Participant> readParticipantsQuietly(Reader reader, String source) throws FileProcessingException {
+        return parseParticipants(new BufferedReader(reader), source, false);
+    }
+
+    private static List<Participant> parseParticipants(String filename, boolean console) throws FileProcessingException {
+        File file = new File(filename);
         if (!file.exists()) {
             logger.error("Participants file not found: " + filename, null);
             throw new FileProcessingException("Participants file not found: " + filename, null);
         }
-
         try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            return parseParticipants(br, filename, console);
+        } catch (IOException e) {
+            logger.error("Failed to read file: " + filename, e);
+            throw new FileProcessingException("Failed to read file: " + filename, e);
+        }
+    }
+
+    private static List<Participant> parseParticipants(BufferedReader br, String source, boolean console)
+            throws FileProcessingException {
+        List<Participant> participants = new ArrayList<>();
+        RosterIndex index = new RosterIndex();
+        try {
             String line = br.readLine(); // skip header
             if (line == null) throw new FileProcessingException("CSV file is empty", null);
 
@@ -27,58 +59,94 @@ public class FileHandler {
                 lineNumber++;
                 if (line.trim().isEmpty()) continue;
 
-                String[] parts = line.split(",");
-                if (parts.length < 8) {
-                    System.err.println("Warning: Skipping malformed line " + lineNumber + ": " + line);
+                Participant p = parseParticipant(line, lineNumber);
+                if (p == null) {
+                    if (console) System.err.println("Warning: Skipping malformed line " + lineNumber + ": " + line);
+                    else logger.info("Malformed line skipped on line " + lineNumber);
                     continue;
                 }
-
-                try {
-                    Participant p = new Participant(
-                            parts[0].trim(),
-                            parts[1].trim(),
-                            parts[2].trim(),
-                            parts[3].trim(),
-                            Integer.parseInt(parts[4].trim()),
-                            parts[5].trim(),
-                            Integer.parseInt(parts[6].trim())
-                    );
-                    participants.add(p);
-                } catch (NumberFormatException e) {
-                    throw new InvalidParticipantDataException("Invalid number on line " + lineNumber + ": " + line, e);
-                } catch (IllegalArgumentException e) {
-                    throw new InvalidParticipantDataException("Invalid role on line " + lineNumber + ": " + line, (NumberFormatException) e);
+                if (!index.add(p)) {
+                    if (console) System.err.println("Warning: Skipping duplicate ID or email on line " + lineNumber + ": " + line);
+                    logger.info("Duplicate participant skipped on line " + lineNumber + ": " + p.getId());
+                    continue;
                 }
+                participants.add(p);
             }
         } catch (IOException | InvalidParticipantDataException e) {
-            logger.error("Failed to read file: " + filename, e);
-            throw new FileProcessingException("Failed to read file: " + filename, e);
+            logger.error("Failed to read file: " + source, e);
+            throw new FileProcessingException("Failed to read file: " + source, e);
         }
-
-        System.out.println("Successfully loaded " + participants.size() + " participants.");
-        logger.info("Loaded " + participants.size() + " participants from " + filename);
         return participants;
     }
 
+    //Parses one CSV row, returns null if the row does not have enough columns
+    public static Participant parseParticipant(String line, int lineNumber) throws InvalidParticipantDataException {
+        String[] parts = line.split(",");
+        if (parts.length < 8) {
+            return null;
+        }
+
+        try {
+            return new Participant(
+                    parts[0].trim(),
+                    parts[1].trim(),
+                    parts[2].trim(),
+                    parts[3].trim(),
+                    Integer.parseInt(parts[4].trim()),
+                    parts[5].trim(),
+                    Integer.parseInt(parts[6].trim())
+            );
+        } catch (NumberFormatException e) {
+            throw new InvalidParticipantDataException("Invalid number on line " + lineNumber + ": " + line, e);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidParticipantDataException("Invalid role on line " + lineNumber + ": " + line, null);
+        }
+    }
+
     //Appending a new member
 
     public static void appendParticipant(String filename, Participant p) throws FileProcessingException {
         try (PrintWriter pw = new PrintWriter(new FileWriter(filename, true))) {
-            pw.printf("%s,%s,%s,%s,%d,%s,%d,%s%n",
-                    p.getId(), p.getName(), p.getEmail(), p.getPreferredGame(),
-                    p.getSkillLevel(), p.getPreferredRole(),
-                    p.getPersonalityScore(), p.getPersonalityType()
-            );
+            printParticipant(pw, p);
             logger.info("Appended participant " + p.getId() + " to " + filename);
+            FormationCache.invalidate();
         } catch (IOException e) {
             logger.error("Could not append participant " + p.getId() + " to file", e);
             throw new FileProcessingException("Could not save new member to file", e);
         }
     }
 
+    //Appending many members with a single open and flush
+
+    public static void appendParticipants(String filename, List<Participant> participants) throws FileProcessingException {
+        if (participants.isEmpty()) return;
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new FileWriter(filename, true)))) {
+            for (Participant p : participants) {
+                printParticipant(pw, p);
+            }
+            if (pw.checkError()) throw new IOException("Write to " + filename + " failed");
+            logger.info("Appended " + participants.size() + " participants to " + filename);
+            FormationCache.invalidate();
+        } catch (IOException e) {
+            logger.error("Could not append " + participants.size() + " participants to file", e);
+            throw new FileProcessingException("Could not save imported members to file", e);
+        }
+    }
+
+    private static void printParticipant(PrintWriter pw, Participant p) {
+        pw.printf("%s,%s,%s,%s,%d,%s,%d,%s%n",
+                p.getId(), p.getName(), p.getEmail(), p.getPreferredGame(),
+                p.getSkillLevel(), p.getPreferredRole(),
+                p.getPersonalityScore(), p.getPersonalityType()
+        );
+    }
+
     //Writes the member details to the csv file
 
     public static void writeTeams(List<Team> teams, String filename) {
+        long start = System.nanoTime();
+        TeamExportEvent event = new TeamExportEvent();
+        event.begin();
         try (PrintWriter pw = new PrintWriter(new FileWriter(filename))) {
             pw.println("TeamNumber,ParticipantID,Name,Game,Role,Personality,Skill");
 
@@ -101,6 +169,17 @@ public class FileHandler {
             }
             System.out.println("Teams successfully saved to " + filename);
             logger.info("Exported " + teams.size() + " teams to " + filename);
+            metrics.recordExport(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                int exported = 0;
+                for (Team team : teams) {
+                    exported += team.getSize();
+                }
+                event.file = filename;
+                event.teams = teams.size();
+                event.participants = exported;
+                event.commit();
+            }
         } catch (IOException e) {
             logger.error("Failed to write teams to " + filename, e);
             System.err.println("Could not write file: " + e.getMessage());
@@ -0,0 +1,31 @@
+package main;
+
+import jdk.jfr.*;
+
+//JFR event for one TeamFormationTask attempt
+@Name("teammate.FormationAttempt")
+@Label("Formation Attempt")
+@Category("TeamMate")
+@StackTrace(false)
+public class FormationAttemptEvent extends Event {
+    @Label("Roster Size")
+    int rosterSize;
+
+    @Label("Team Size")
+    int teamSize;
+
+    @Label("Requested Teams")
+    int numberOfTeams;
+
+    @Label("Seed")
+    long seed;
+
+    @Label("Greedy Picks")
+    int picks;
+
+    @Label("Teams Formed")
+    int teamsFormed;
+
+    @Label("Quality Score")
+    double qualityScore;
+}
@@ -0,0 +1,215 @@
+package main;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches formation results keyed by a fingerprint of the roster contents plus
+ * (teamSize, numberOfTeams, strategy, seed) and the pair history version.
+ *
+ * Results are kept as lists of participant IDs in an in-memory LRU and, when a
+ * disk file is set, also appended to that file so they survive a restart. Once the
+ * file holds DISK_CAPACITY entries it is compacted to the newest half.
+ * Any change to the roster goes through invalidate().
+ */
+public class FormationCache {
+    private static final Logger logger = Logger.getInstance();
+    private static final int MEMORY_CAPACITY = 32;
+    private static final int DISK_CAPACITY = 256;
+
+    private static final Map<String, List<List<String>>> memory =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, List<List<String>>> eldest) {
+                    return size() > MEMORY_CAPACITY;
+                }
+            };
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static String diskFile;
+    private static int diskEntries = -1;   // counted on the first write after the file changed hands
+
+    //Turns on the on-disk tier, pass null to turn it off
+    public static synchronized void enableDiskTier(String filename) {
+        diskFile = filename;
+        diskEntries = -1;
+    }
+
+    public static String key(List<Participant> participants, int teamSize, int numberOfTeams,
+                             FormationStrategy strategy, long seed, long historyVersion) {
+        return String.format("%016x|%d|%d|%s|%d|%d",
+                fingerprint(participants), teamSize, numberOfTeams, strategy.name(), seed, historyVersion);
+    }
+
+    //64-bit FNV-1a hash over every field of every participant, in roster order
+    public static long fingerprint(List<Participant> participants) {
+        long hash = 0xcbf29ce484222325L;
+        for (Participant p : participants) {
+            hash = mix(hash, p.getId());
+            hash = mix(hash, p.getName());
+            hash = mix(hash, p.getEmail());
+            hash = mix(hash, p.getPreferredGame());
+            hash = mix(hash, p.getPreferredRole().name());
+            hash = mix(hash, Integer.toString(p.getSkillLevel()));
+            hash = mix(hash, Integer.toString(p.getPersonalityScore()));
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= 0x1f;   // field separator
+        return hash * 0x100000001b3L;
+    }
+
+    //Returns fresh Team objects for a cached result, or null on a miss
+    public static synchronized List<Team> get(String key, List<Participant> participants) {
+        List<List<String>> ids = memory.get(key);
+        if (ids == null) {
+            ids = readFromDisk(key);
+            if (ids != null) memory.put(key, ids);
+        }
+
+        List<Team> teams = (ids == null) ? null : toTeams(ids, participants);
+        if (teams == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return teams;
+    }
+
+    public static synchronized void put(String key, List<Team> teams) {
+        List<List<String>> ids = new ArrayList<>();
+        for (Team team : teams) {
+            List<String> members = new ArrayList<>();
+            for (Participant p : team.getMembers()) {
+                members.add(p.getId());
+            }
+            ids.add(members);
+        }
+        memory.put(key, ids);
+        writeToDisk(key, ids);
+    }
+
+    //Files a cached result under a second key as well, if the first key still holds exactly these teams
+    public static synchronized void refile(String oldKey, String newKey, List<Team> teams) {
+        List<List<String>> ids = memory.get(oldKey);
+        if (ids == null || ids.size() != teams.size()) return;
+        for (int i = 0; i < ids.size(); i++) {
+            List<Participant> members = teams.get(i).getMembers();
+            if (ids.get(i).size() != members.size()) return;
+            for (int j = 0; j < members.size(); j++) {
+                if (!ids.get(i).get(j).equals(members.get(j).getId())) return;
+            }
+        }
+        memory.put(newKey, ids);
+        writeToDisk(newKey, ids);
+    }
+
+    //Drops every cached result, called whenever the roster changes
+    public static synchronized void invalidate() {
+        memory.clear();
+        diskEntries = 0;
+        if (diskFile != null) {
+            File file = new File(diskFile);
+            if (file.exists() && !file.delete()) {
+                logger.info("Could not delete formation cache file " + diskFile);
+            }
+        }
+        logger.info("Formation cache invalidated");
+    }
+
+    public static long getHits() { return hits.get(); }
+    public static long getMisses() { return misses.get(); }
+
+    private static List<Team> toTeams(List<List<String>> ids, List<Participant> participants) {
+        Map<String, Participant> byId = new HashMap<>();
+        for (Participant p : participants) {
+            byId.put(p.getId(), p);
+        }
+
+        List<Team> teams = new ArrayList<>();
+        for (List<String> members : ids) {
+            Team team = new Team(teams.size() + 1);
+            for (String id : members) {
+                Participant p = byId.get(id);
+                if (p == null) return null;  // roster no longer matches, treat as a miss
+                team.addMember(p);
+            }
+            teams.add(team);
+        }
+        return teams;
+    }
+
+    // Disk format: one entry per line, "key<TAB>P001,P002;P003,P004"
+    private static List<List<String>> readFromDisk(String key) {
+        if (diskFile == null || !new File(diskFile).exists()) return null;
+
+        try (BufferedReader br = new BufferedReader(new FileReader(diskFile))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0 || !line.substring(0, tab).equals(key)) continue;
+
+                List<List<String>> ids = new ArrayList<>();
+                for (String team : line.substring(tab + 1).split(";")) {
+                    if (!team.isEmpty()) ids.add(Arrays.asList(team.split(",")));
+                }
+                return ids;
+            }
+        } catch (IOException e) {
+            logger.error("Could not read formation cache " + diskFile, e);
+        }
+        return null;
+    }
+
+    private static void writeToDisk(String key, List<List<String>> ids) {
+        if (diskFile == null) return;
+
+        StringBuilder sb = new StringBuilder(key).append('\t');
+        for (List<String> team : ids) {
+            sb.append(String.join(",", team)).append(';');
+        }
+        try {
+            if (diskEntries < 0) diskEntries = readDiskLines().size();
+            if (diskEntries >= DISK_CAPACITY) compactDisk();
+            try (PrintWriter pw = new PrintWriter(new FileWriter(diskFile, true))) {
+                pw.println(sb);
+            }
+            diskEntries++;
+        } catch (IOException e) {
+            logger.error("Could not write formation cache " + diskFile, e);
+        }
+    }
+
+    //Rewrites the disk file with only its newest half, so it stays bounded between invalidations
+    private static void compactDisk() throws IOException {
+        List<String> lines = readDiskLines();
+        List<String> kept = lines.subList(Math.max(0, lines.size() - DISK_CAPACITY / 2), lines.size());
+        try (PrintWriter pw = new PrintWriter(new FileWriter(diskFile, false))) {
+            for (String line : kept) {
+                pw.println(line);
+            }
+        }
+        diskEntries = kept.size();
+        logger.info("Formation cache file compacted to " + kept.size() + " entries");
+    }
+
+    private static List<String> readDiskLines() throws IOException {
+        File file = new File(diskFile);
+        if (!file.exists()) return new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (!line.isEmpty()) lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,34 @@
+package main;
+
+import jdk.jfr.*;
+
+//JFR event for one TeamBuilder.buildSpecificNumberOfTeams call
+@Name("teammate.Formation")
+@Label("Team Formation")
+@Category("TeamMate")
+@StackTrace(false)
+public class FormationEvent extends Event {
+    @Label("Roster Size")
+    int rosterSize;
+
+    @Label("Team Size")
+    int teamSize;
+
+    @Label("Requested Teams")
+    int numberOfTeams;
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Seed")
+    long seed;
+
+    @Label("Teams Formed")
+    int teamsFormed;
+
+    @Label("Quality Score")
+    double qualityScore;
+
+    @Label("Served From Cache")
+    boolean cacheHit;
+}
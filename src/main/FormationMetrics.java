@@ -0,0 +1,120 @@
+package main;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms for team formation, registered as a platform MXBean
+ * (teammate:type=FormationMetrics) so JConsole or any JMX client can read them.
+ * Every record call is a LongAdder or histogram increment and never blocks.
+ * Latencies are recorded in nanoseconds and reported in milliseconds.
+ */
+public class FormationMetrics implements FormationMetricsMXBean {
+    private static final Logger logger = Logger.getInstance();
+    private static final String OBJECT_NAME = "teammate:type=FormationMetrics";
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static FormationMetrics instance;
+
+    private final LongAdder attemptsRun = new LongAdder();
+    private final LongAdder rejectedAttempts = new LongAdder();
+    private final LongAdder unfinishedAttempts = new LongAdder();
+    private final LongAdder candidatesScored = new LongAdder();
+    private final LongAdder greedyPicks = new LongAdder();
+
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+    private final LatencyHistogram feasibilityLatency = new LatencyHistogram();
+    private final LatencyHistogram attemptLatency = new LatencyHistogram();
+    private final LatencyHistogram selectionLatency = new LatencyHistogram();
+    private final LatencyHistogram exportLatency = new LatencyHistogram();
+    private final LatencyHistogram attemptQuality = new LatencyHistogram();
+
+    //Constructor
+    private FormationMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            logger.error("Could not register formation metrics MXBean", e);
+        }
+    }
+
+    public static synchronized FormationMetrics getInstance() {
+        if (instance == null) {
+            instance = new FormationMetrics();
+        }
+        return instance;
+    }
+
+    // Recording
+    public void recordLoad(long nanos) { loadLatency.record(nanos); }
+    public void recordFeasibility(long nanos) { feasibilityLatency.record(nanos); }
+    public void recordSelection(long nanos) { selectionLatency.record(nanos); }
+    public void recordExport(long nanos) { exportLatency.record(nanos); }
+
+    public void recordAttempt(long nanos) {
+        attemptsRun.increment();
+        attemptLatency.record(nanos);
+    }
+
+    public void recordAttemptQuality(double score) {
+        attemptQuality.record(Math.round(score));
+    }
+
+    public void recordRejectedAttempts(int count) {
+        rejectedAttempts.add(count);
+    }
+
+    //Attempts cut off by a stop request or the timeout before they produced teams
+    public void recordUnfinishedAttempts(int count) {
+        unfinishedAttempts.add(count);
+    }
+
+    public void recordGreedyPick(int candidatesScoredForPick) {
+        greedyPicks.increment();
+        candidatesScored.add(candidatesScoredForPick);
+    }
+
+    // MXBean attributes
+    @Override public long getAttemptsRun() { return attemptsRun.sum(); }
+    @Override public long getRejectedAttempts() { return rejectedAttempts.sum(); }
+    @Override public long getUnfinishedAttempts() { return unfinishedAttempts.sum(); }
+    @Override public long getCandidatesScored() { return candidatesScored.sum(); }
+    @Override public long getGreedyPicks() { return greedyPicks.sum(); }
+
+    @Override public HistogramSummary getLoadLatency() { return millis(loadLatency); }
+    @Override public HistogramSummary getFeasibilityLatency() { return millis(feasibilityLatency); }
+    @Override public HistogramSummary getAttemptLatency() { return millis(attemptLatency); }
+    @Override public HistogramSummary getSelectionLatency() { return millis(selectionLatency); }
+    @Override public HistogramSummary getExportLatency() { return millis(exportLatency); }
+
+    @Override
+    public HistogramSummary getAttemptQuality() {
+        return HistogramSummary.of(attemptQuality, "score", 1);
+    }
+
+    @Override
+    public void reset() {
+        attemptsRun.reset();
+        rejectedAttempts.reset();
+        unfinishedAttempts.reset();
+        candidatesScored.reset();
+        greedyPicks.reset();
+        loadLatency.reset();
+        feasibilityLatency.reset();
+        attemptLatency.reset();
+        selectionLatency.reset();
+        exportLatency.reset();
+        attemptQuality.reset();
+        logger.info("Formation metrics reset");
+    }
+
+    private static HistogramSummary millis(LatencyHistogram histogram) {
+        return HistogramSummary.of(histogram, "ms", NANOS_PER_MILLI);
+    }
+}
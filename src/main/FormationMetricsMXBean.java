@@ -0,0 +1,19 @@
+package main;
+
+//Management interface of FormationMetrics, registered as teammate:type=FormationMetrics
+public interface FormationMetricsMXBean {
+    long getAttemptsRun();
+    long getRejectedAttempts();
+    long getUnfinishedAttempts();
+    long getCandidatesScored();
+    long getGreedyPicks();
+
+    HistogramSummary getLoadLatency();
+    HistogramSummary getFeasibilityLatency();
+    HistogramSummary getAttemptLatency();
+    HistogramSummary getSelectionLatency();
+    HistogramSummary getExportLatency();
+    HistogramSummary getAttemptQuality();
+
+    void reset();
+}
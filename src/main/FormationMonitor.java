@@ -0,0 +1,145 @@
+package main;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+/**
+ * Watches one formation at a time: collects progress from the formation code and
+ * lets the caller stop it early.
+ *
+ * The formation side only bumps a counter and a running maximum. A single daemon
+ * thread reads them every interval and calls the listener, and only when something
+ * changed, so a slow listener never holds up an attempt.
+ */
+public class FormationMonitor {
+    private static final Logger logger = Logger.getInstance();
+    public static final long DEFAULT_INTERVAL_MS = 250;
+
+    private final FormationProgressListener listener;
+    private final long intervalMillis;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final DoubleAccumulator best = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+    private volatile int planned;
+    private volatile int parallelism = 1;
+    private volatile long budgetMillis;
+    private volatile long startNanos;
+    private volatile boolean stopRequested;
+    private volatile boolean timeLimited;
+    private ScheduledExecutorService deliverer;
+
+    // Only touched on the deliverer thread
+    private int lastCompleted;
+    private double lastBest;
+
+    //Constructors, a null listener just tracks stop requests
+    public FormationMonitor(FormationProgressListener listener) {
+        this(listener, DEFAULT_INTERVAL_MS);
+    }
+
+    public FormationMonitor(FormationProgressListener listener, long intervalMillis) {
+        this.listener = listener;
+        this.intervalMillis = intervalMillis;
+    }
+
+    //Asks the running formation to stop and return the best result it has so far
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    public boolean isStopRequested() {
+        return stopRequested;
+    }
+
+    //Called by a formation whose result depended on the time it was given, not only on its seed
+    void markTimeLimited() {
+        timeLimited = true;
+    }
+
+    boolean isTimeLimited() {
+        return timeLimited;
+    }
+
+    //True when someone is listening, so callers can skip work that only feeds updates
+    boolean isListening() {
+        return listener != null;
+    }
+
+    //Called by TeamBuilder when a formation starts, budgetMillis caps the estimate (0 for none).
+    //Pass 0 planned units for a run that only ends when its time budget does.
+    //A stop requested before this still counts
+    synchronized void start(int plannedUnits, long budgetMillis) {
+        start(plannedUnits, 1, budgetMillis);
+    }
+
+    //Same as above for units that run up to parallelism at a time
+    synchronized void start(int plannedUnits, int parallelism, long budgetMillis) {
+        completed.set(0);
+        best.reset();
+        planned = plannedUnits;
+        this.parallelism = Math.max(1, parallelism);
+        timeLimited = false;
+        this.budgetMillis = budgetMillis;
+        startNanos = System.nanoTime();
+        lastCompleted = 0;
+        lastBest = Double.NaN;
+        if (listener == null) return;
+
+        deliverer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "formation-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deliverer.scheduleAtFixedRate(() -> deliver(false), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //One attempt or generation finished, pass NaN when it produced nothing to score
+    void unitCompleted(double score) {
+        if (!Double.isNaN(score)) best.accumulate(score);
+        completed.incrementAndGet();
+    }
+
+    //Sends the final update and stops the deliverer thread
+    synchronized void finish() {
+        if (deliverer == null) return;
+        deliverer.execute(() -> deliver(true));
+        deliverer.shutdown();
+        try {
+            deliverer.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deliverer = null;
+    }
+
+    private void deliver(boolean finished) {
+        int done = completed.get();
+        if (!finished && done == lastCompleted) return;
+
+        double bestScore = best.get();
+        if (bestScore == Double.NEGATIVE_INFINITY) bestScore = Double.NaN;
+        double trend = (Double.isNaN(bestScore) || Double.isNaN(lastBest)) ? 0 : bestScore - lastBest;
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long remaining = -1;
+        if (finished) {
+            remaining = 0;
+        } else if (planned <= 0) {
+            if (budgetMillis > 0) remaining = Math.max(0, budgetMillis - elapsed);
+        } else if (done > 0) {
+            // Units finish in waves of `parallelism`, the last finished one closed wave ceil(done / parallelism)
+            long waveMillis = elapsed / ((done + parallelism - 1) / parallelism);
+            long waves = (planned + parallelism - 1) / parallelism;
+            remaining = Math.max(0, waves * waveMillis - elapsed);
+            if (budgetMillis > 0) remaining = Math.min(remaining, Math.max(0, budgetMillis - elapsed));
+        }
+
+        lastCompleted = done;
+        if (!Double.isNaN(bestScore)) lastBest = bestScore;
+        try {
+            listener.onProgress(new FormationProgress(done, planned, bestScore, trend, elapsed, remaining, finished));
+        } catch (RuntimeException e) {
+            logger.error("Progress listener failed", e);
+        }
+    }
+}
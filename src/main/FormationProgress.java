@@ -0,0 +1,58 @@
+package main;
+
+//One progress update: how far a formation has got and how good its best result is so far
+public class FormationProgress {
+    private final int completed;
+    private final int planned;
+    private final double bestScore;
+    private final double trend;
+    private final long elapsedMillis;
+    private final long remainingMillis;
+    private final boolean finished;
+
+    //Constructor
+    public FormationProgress(int completed, int planned, double bestScore, double trend,
+                             long elapsedMillis, long remainingMillis, boolean finished) {
+        this.completed = completed;
+        this.planned = planned;
+        this.bestScore = bestScore;
+        this.trend = trend;
+        this.elapsedMillis = elapsedMillis;
+        this.remainingMillis = remainingMillis;
+        this.finished = finished;
+    }
+
+    //Attempts (or generations) completed so far, planned is 0 for runs bounded only by time
+    public int getCompleted() { return completed; }
+    public int getPlanned() { return planned; }
+
+    //Best calculateQualityScore seen so far, NaN before the first result
+    public double getBestScore() { return bestScore; }
+
+    //Change in the best score since the previous update
+    public double getTrend() { return trend; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    //Estimated time left, -1 while there is nothing to estimate from
+    public long getRemainingMillis() { return remainingMillis; }
+
+    public boolean isFinished() { return finished; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(completed);
+        if (planned > 0) sb.append('/').append(planned);
+        sb.append(" done");
+        if (!Double.isNaN(bestScore)) {
+            sb.append(String.format(", best %.2f (%+.2f)", bestScore, trend));
+        }
+        if (finished) {
+            sb.append(", finished in ").append(elapsedMillis).append(" ms");
+        } else if (remainingMillis >= 0) {
+            sb.append(", ~").append(remainingMillis).append(" ms left");
+        }
+        return sb.toString();
+    }
+}
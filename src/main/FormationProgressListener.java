@@ -0,0 +1,6 @@
+package main;
+
+//Receives progress updates while teams are being formed, always on the monitor's own thread
+public interface FormationProgressListener {
+    void onProgress(FormationProgress progress);
+}
@@ -0,0 +1,19 @@
+package main;
+
+public enum FormationStrategy {
+    RANDOMIZED_GREEDY("Randomized greedy"),
+    SNAKE_DRAFT("Snake draft"),
+    GENETIC("Genetic algorithm"),
+    PORTFOLIO("Adaptive portfolio"),
+    EXACT("Exact search (small rosters)");
+
+    private final String name;
+
+    //Constructor
+    FormationStrategy(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() { return name; }
+}
@@ -0,0 +1,242 @@
+package main;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Memetic formation engine: a population of team sets seeded from randomized
+ * greedy attempts, evolved with team-preserving crossover, a greedy repair step
+ * and same-personality swap mutations. Fitness is calculateQualityScore, evaluated
+ * in parallel across the population on a fork-join pool.
+ *
+ * Runs until the generation count or the time budget is used up, whichever is first.
+ */
+public class GeneticFormation {
+    private static final Logger logger = Logger.getInstance();
+    private static final int MAX_PER_GAME = 2;
+    private static final int POPULATION_SIZE = 24;
+    private static final int ELITE_COUNT = 2;
+    private static final int TOURNAMENT_SIZE = 3;
+    private static final double MUTATION_RATE = 0.3;
+
+    public static final int DEFAULT_GENERATIONS = Integer.getInteger("teammate.ga.generations", 200);
+    public static final long DEFAULT_TIME_BUDGET_MS = Long.getLong("teammate.ga.timeBudgetMs", 2000);
+
+    private final List<Participant> participants;
+    private final int teamSize;
+    private final int numberOfTeams;
+    private final Random random;
+    private final FormationMonitor monitor;
+    private final ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private GeneticFormation(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                             FormationMonitor monitor) {
+        this.participants = participants;
+        this.teamSize = teamSize;
+        this.numberOfTeams = numberOfTeams;
+        this.random = new Random(seed);
+        this.monitor = monitor;
+    }
+
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams, long seed) {
+        return formTeams(participants, teamSize, numberOfTeams, seed, new FormationMonitor(null));
+    }
+
+    //Reports every generation to the monitor and stops when it asks to
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                                       FormationMonitor monitor) {
+        return formTeams(participants, teamSize, numberOfTeams, seed, DEFAULT_GENERATIONS, DEFAULT_TIME_BUDGET_MS, monitor);
+    }
+
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                                       int generations, long timeBudgetMillis) {
+        return formTeams(participants, teamSize, numberOfTeams, seed, generations, timeBudgetMillis,
+                new FormationMonitor(null));
+    }
+
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                                       int generations, long timeBudgetMillis, FormationMonitor monitor) {
+        return new GeneticFormation(participants, teamSize, numberOfTeams, seed, monitor)
+                .evolve(generations, timeBudgetMillis);
+    }
+
+    private List<Team> evolve(int generations, long timeBudgetMillis) {
+        long deadline = System.currentTimeMillis() + timeBudgetMillis;
+
+        List<List<Team>> population = seedPopulation();
+        if (population.isEmpty()) return new ArrayList<>();
+        double[] fitness = evaluate(population);
+
+        int generation = 0;
+        while (generation < generations && System.currentTimeMillis() < deadline && !monitor.isStopRequested()) {
+            Integer[] order = rankByFitness(fitness);
+
+            List<List<Team>> next = new ArrayList<>();
+            for (int e = 0; e < ELITE_COUNT && e < order.length; e++) {
+                next.add(population.get(order[e]));
+            }
+            while (next.size() < POPULATION_SIZE) {
+                List<Team> child = crossover(population.get(tournament(fitness)), population.get(tournament(fitness)));
+                if (random.nextDouble() < MUTATION_RATE) {
+                    mutate(child);
+                }
+                next.add(child);
+            }
+
+            population = next;
+            fitness = evaluate(population);
+            generation++;
+            monitor.unitCompleted(Arrays.stream(fitness).max().orElse(Double.NaN));
+        }
+
+        // Cut off by the clock rather than the generation count, so the seed alone does not pin the result
+        if (generation < generations && !monitor.isStopRequested()) monitor.markTimeLimited();
+
+        int best = rankByFitness(fitness)[0];
+        logger.info(String.format("Genetic formation: %d generations, best score %.2f", generation, fitness[best]));
+        return copy(population.get(best));
+    }
+
+    //Initial population from independent greedy attempts, run on the fork-join pool.
+    //Each attempt has its own slot, so the population is in task order whatever order they finish in.
+    private List<List<Team>> seedPopulation() {
+        List<List<List<Team>>> slots = new ArrayList<>();
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < POPULATION_SIZE; i++) {
+            long taskSeed = random.nextLong();
+            List<List<Team>> slot = new ArrayList<>(1);
+            slots.add(slot);
+            tasks.add(() -> {
+                new TeamFormationTask(participants, teamSize, slot, numberOfTeams, taskSeed).run();
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+
+        List<List<Team>> results = new ArrayList<>();
+        for (List<List<Team>> slot : slots) {
+            if (!slot.isEmpty() && !slot.get(0).isEmpty()) results.add(slot.get(0));
+        }
+        return results;
+    }
+
+    private double[] evaluate(List<List<Team>> population) {
+        double[] fitness = new double[population.size()];
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < population.size(); i++) {
+            int index = i;
+            tasks.add(() -> {
+                fitness[index] = TeamBuilder.calculateQualityScore(population.get(index));
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+        return fitness;
+    }
+
+    private Integer[] rankByFitness(double[] fitness) {
+        Integer[] order = new Integer[fitness.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(fitness[b], fitness[a]));
+        return order;
+    }
+
+    private int tournament(double[] fitness) {
+        int best = random.nextInt(fitness.length);
+        for (int i = 1; i < TOURNAMENT_SIZE; i++) {
+            int challenger = random.nextInt(fitness.length);
+            if (fitness[challenger] > fitness[best]) best = challenger;
+        }
+        return best;
+    }
+
+    /**
+     * Takes whole teams from both parents, best teams first, skipping any team that
+     * shares a member with one already taken. Whole teams already respect the game
+     * cap and personality rules, so only the missing teams need to be rebuilt.
+     */
+    private List<Team> crossover(List<Team> first, List<Team> second) {
+        List<Team> candidates = new ArrayList<>();
+        candidates.addAll(first);
+        candidates.addAll(second);
+        Collections.shuffle(candidates, random);
+        candidates.sort(Comparator.comparingDouble(TeamBuilder::scoreTeamComposition).reversed());
+
+        Set<Participant> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Team> child = new ArrayList<>();
+        for (Team team : candidates) {
+            if (child.size() >= numberOfTeams) break;
+            boolean overlaps = false;
+            for (Participant member : team.getMembers()) {
+                if (used.contains(member)) {
+                    overlaps = true;
+                    break;
+                }
+            }
+            if (overlaps) continue;
+
+            used.addAll(team.getMembers());
+            child.add(copy(team));
+        }
+
+        repair(child, used);
+        return child;
+    }
+
+    //Builds the missing teams from everyone not yet placed with the greedy rules
+    private void repair(List<Team> child, Set<Participant> used) {
+        int missing = numberOfTeams - child.size();
+        if (missing <= 0) return;
+
+        List<Participant> leftover = new ArrayList<>();
+        for (Participant p : participants) {
+            if (!used.contains(p)) leftover.add(p);
+        }
+        List<List<Team>> rebuilt = new ArrayList<>();
+        new TeamFormationTask(leftover, teamSize, rebuilt, missing, random.nextLong()).run();
+        if (!rebuilt.isEmpty()) child.addAll(rebuilt.get(0));   // empty when the run was interrupted
+    }
+
+    //Swaps two members of the same personality between teams when both game caps still hold
+    private void mutate(List<Team> teams) {
+        if (teams.size() < 2) return;
+        Team a = teams.get(random.nextInt(teams.size()));
+        Team b = teams.get(random.nextInt(teams.size()));
+        if (a == b || a.getSize() == 0 || b.getSize() == 0) return;
+
+        Participant fromA = a.getMembers().get(random.nextInt(a.getSize()));
+        for (Participant fromB : b.getMembers()) {
+            if (fromB.getPersonalityType() != fromA.getPersonalityType()) continue;
+            if (!fitsAfterSwap(a, fromA, fromB) || !fitsAfterSwap(b, fromB, fromA)) continue;
+
+            a.getMembers().set(a.getMembers().indexOf(fromA), fromB);
+            b.getMembers().set(b.getMembers().indexOf(fromB), fromA);
+            return;
+        }
+    }
+
+    private static boolean fitsAfterSwap(Team team, Participant out, Participant in) {
+        int sameGame = 0;
+        for (Participant member : team.getMembers()) {
+            if (member != out && member.getPreferredGame().equalsIgnoreCase(in.getPreferredGame())) sameGame++;
+        }
+        return sameGame < MAX_PER_GAME;
+    }
+
+    private static Team copy(Team team) {
+        Team copy = new Team(team.getTeamNumber());
+        for (Participant member : team.getMembers()) {
+            copy.addMember(member);
+        }
+        return copy;
+    }
+
+    private static List<Team> copy(List<Team> teams) {
+        List<Team> copy = new ArrayList<>();
+        for (Team team : teams) {
+            copy.add(copy(team));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,47 @@
+package main;
+
+//Read-only view of a histogram, exposed over JMX as composite data
+public class HistogramSummary {
+    private final String unit;
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double max;
+
+    //Constructor
+    public HistogramSummary(String unit, long count, double mean, double p50, double p90, double p99, double max) {
+        this.unit = unit;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    //Summary of a histogram with every value divided by the given scale
+    public static HistogramSummary of(LatencyHistogram histogram, String unit, double scale) {
+        return new HistogramSummary(unit, histogram.getCount(),
+                histogram.getMean() / scale,
+                histogram.getPercentile(50) / scale,
+                histogram.getPercentile(90) / scale,
+                histogram.getPercentile(99) / scale,
+                histogram.getMax() / scale);
+    }
+
+    public String getUnit() { return unit; }
+    public long getCount() { return count; }
+    public double getMean() { return mean; }
+    public double getP50() { return p50; }
+    public double getP90() { return p90; }
+    public double getP99() { return p99; }
+    public double getMax() { return max; }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.2f p50=%.2f p90=%.2f p99=%.2f max=%.2f %s",
+                count, mean, p50, p90, p99, max, unit);
+    }
+}
@@ -0,0 +1,31 @@
+package main;
+
+import java.util.Collections;
+import java.util.List;
+
+//Outcome of a bulk import: the participants that were added and the rows that were skipped
+public class ImportResult {
+    private final List<Participant> imported;
+    private final int duplicates;
+    private final int invalid;
+    private final int renumbered;
+
+    //Constructor
+    public ImportResult(List<Participant> imported, int duplicates, int invalid, int renumbered) {
+        this.imported = Collections.unmodifiableList(imported);
+        this.duplicates = duplicates;
+        this.invalid = invalid;
+        this.renumbered = renumbered;
+    }
+
+    public List<Participant> getImported() { return imported; }
+    public int getDuplicates() { return duplicates; }
+    public int getInvalid() { return invalid; }
+    public int getRenumbered() { return renumbered; }
+
+    @Override
+    public String toString() {
+        return String.format("%d imported (%d with new IDs), %d duplicates, %d invalid rows",
+                imported.size(), renumbered, duplicates, invalid);
+    }
+}
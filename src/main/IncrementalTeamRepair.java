@@ -0,0 +1,183 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Updates a previous team set after roster changes instead of forming every team
+ * again. Removed participants leave their teams, open slots are filled from the
+ * newcomers and the bench (participants the last formation left unplaced), and a
+ * few newcomer/member swaps rebalance the result. The bench only fills open slots:
+ * swaps always bring a newcomer in, and the budget is sized by the changes since
+ * the last formation, so members who are not part of an improving move keep their team.
+ *
+ * Moves are scored with the change in calculateQualityScore, but only the touched
+ * team is re-evaluated: the composition terms are per-team averages and the skill
+ * balance term is kept as running sums over the team averages.
+ */
+public class IncrementalTeamRepair {
+    private static final Logger logger = Logger.getInstance();
+    private static final int MAX_PER_GAME = 2;
+    private static final int SWAPS_PER_CHANGE = 4;
+    private static final double MIN_GAIN = 1e-9;
+
+    private final List<Team> teams = new ArrayList<>();
+    private final double[] averages;
+    private double averageSum;
+    private double averageSquares;
+
+    private IncrementalTeamRepair(List<Team> previousTeams, Set<String> removedIds) {
+        for (Team previous : previousTeams) {
+            Team team = new Team(previous.getTeamNumber());
+            for (Participant member : previous.getMembers()) {
+                if (!removedIds.contains(member.getId())) {
+                    team.addMember(member);
+                }
+            }
+            teams.add(team);
+        }
+        averages = new double[teams.size()];
+        for (int i = 0; i < teams.size(); i++) {
+            averages[i] = teams.get(i).getAverageSkill();
+            averageSum += averages[i];
+            averageSquares += averages[i] * averages[i];
+        }
+    }
+
+    public static List<Team> repair(List<Team> previousTeams, List<Participant> added, List<Participant> bench,
+                                    List<Participant> removed, int teamSize) {
+        Set<String> removedIds = new HashSet<>();
+        for (Participant p : removed) {
+            removedIds.add(p.getId());
+        }
+        List<Participant> newcomers = new ArrayList<>();
+        for (Participant p : added) {
+            if (!removedIds.contains(p.getId())) newcomers.add(p);
+        }
+        List<Participant> pool = new ArrayList<>(newcomers);
+        for (Participant p : bench) {
+            if (!removedIds.contains(p.getId())) pool.add(p);
+        }
+
+        IncrementalTeamRepair repair = new IncrementalTeamRepair(previousTeams, removedIds);
+        int filled = repair.fillOpenSlots(pool, teamSize);
+        newcomers.retainAll(pool);   // still unplaced
+        int swaps = repair.rebalance(newcomers, SWAPS_PER_CHANGE * (added.size() + removed.size()));
+
+        repair.teams.removeIf(team -> team.getSize() == 0);
+        logger.info(String.format("Incremental repair: +%d/-%d members, %d slots filled, %d swaps, %d on the bench",
+                added.size(), removed.size(), filled, swaps, pool.size()));   // a swap moves one off and one on
+        return repair.teams;
+    }
+
+    //Puts newcomers into teams below the target size, best improvement first
+    private int fillOpenSlots(List<Participant> pool, int teamSize) {
+        int filled = 0;
+        boolean progress = true;
+        while (progress && !pool.isEmpty()) {
+            progress = false;
+            for (int i = 0; i < teams.size() && !pool.isEmpty(); i++) {
+                Team team = teams.get(i);
+                if (team.getSize() >= teamSize) continue;
+
+                Participant best = null;
+                double bestGain = Double.NEGATIVE_INFINITY;
+                for (Participant candidate : pool) {
+                    if (countGame(team, candidate.getPreferredGame()) >= MAX_PER_GAME) continue;
+                    double gain = gain(i, withChange(team, null, candidate));
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        best = candidate;
+                    }
+                }
+                if (best != null) {
+                    apply(i, withChange(team, null, best));
+                    pool.remove(best);
+                    filled++;
+                    progress = true;
+                }
+            }
+        }
+        return filled;
+    }
+
+    //Swaps unplaced newcomers with team members while that improves the score; a swapped-out member goes to the bench
+    private int rebalance(List<Participant> newcomers, int maxSwaps) {
+        int swaps = 0;
+        while (swaps < maxSwaps && !newcomers.isEmpty()) {
+            int bestTeam = -1;
+            Participant bestIn = null;
+            Participant bestOut = null;
+            double bestGain = MIN_GAIN;
+
+            for (int i = 0; i < teams.size(); i++) {
+                Team team = teams.get(i);
+                for (Participant out : team.getMembers()) {
+                    for (Participant in : newcomers) {
+                        int sameGame = countGame(team, in.getPreferredGame());
+                        if (out.getPreferredGame().equalsIgnoreCase(in.getPreferredGame())) sameGame--;
+                        if (sameGame >= MAX_PER_GAME) continue;
+
+                        double gain = gain(i, withChange(team, out, in));
+                        if (gain > bestGain) {
+                            bestGain = gain;
+                            bestTeam = i;
+                            bestIn = in;
+                            bestOut = out;
+                        }
+                    }
+                }
+            }
+            if (bestTeam < 0) break;
+
+            apply(bestTeam, withChange(teams.get(bestTeam), bestOut, bestIn));
+            newcomers.remove(bestIn);
+            swaps++;
+        }
+        return swaps;
+    }
+
+    //Copy of the team with one member removed and/or one added
+    private static Team withChange(Team team, Participant out, Participant in) {
+        Team copy = new Team(team.getTeamNumber());
+        for (Participant member : team.getMembers()) {
+            if (member != out) copy.addMember(member);
+        }
+        if (in != null) copy.addMember(in);
+        return copy;
+    }
+
+    //Change in calculateQualityScore if team i were replaced by the given team
+    private double gain(int i, Team changed) {
+        Team current = teams.get(i);
+        double composition = (TeamBuilder.scoreTeamComposition(changed)
+                - TeamBuilder.scoreTeamComposition(current)) / teams.size();
+        double skill = (skillBalanceWith(i, changed.getAverageSkill()) - skillBalanceWith(i, averages[i])) * 20;
+        double used = (changed.getSize() - current.getSize()) * 0.5;
+        return composition + skill + used;
+    }
+
+    private void apply(int i, Team changed) {
+        double average = changed.getAverageSkill();
+        averageSum += average - averages[i];
+        averageSquares += average * average - averages[i] * averages[i];
+        averages[i] = average;
+        teams.set(i, changed);
+    }
+
+    private double skillBalanceWith(int i, double average) {
+        int n = teams.size();
+        double sum = averageSum - averages[i] + average;
+        double squares = averageSquares - averages[i] * averages[i] + average * average;
+        double mean = sum / n;
+        double variance = Math.max(0, squares / n - mean * mean);
+        return Math.max(0, 100 - variance);
+    }
+
+    private static int countGame(Team team, String game) {
+        int count = 0;
+        for (Participant member : team.getMembers()) {
+            if (member.getPreferredGame().equalsIgnoreCase(game)) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,70 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Hill climbing on a finished team set: swaps two members of the same personality
+ * between teams, or a member with someone left on the bench, and keeps the swap only
+ * if calculateQualityScore goes up. Same-personality swaps keep the leader/thinker
+ * rules, and every swap is checked against the per-game cap.
+ */
+public class LocalSearch {
+    private static final int MAX_PER_GAME = 2;
+
+    //Improves the teams in place and returns their final score.
+    //An interrupt ends the search early, between swaps, so the teams are always valid
+    public static double improve(List<Team> teams, List<Participant> participants, Random random, int maxTries) {
+        if (teams.isEmpty()) return Double.NaN;
+
+        Set<Participant> placed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Team team : teams) {
+            placed.addAll(team.getMembers());
+        }
+        List<Participant> bench = new ArrayList<>();
+        for (Participant p : participants) {
+            if (!placed.contains(p)) bench.add(p);
+        }
+
+        double score = TeamBuilder.calculateQualityScore(teams);
+        for (int attempt = 0; attempt < maxTries && !Thread.currentThread().isInterrupted(); attempt++) {
+            Team a = teams.get(random.nextInt(teams.size()));
+            if (a.getSize() == 0) continue;
+            int slotA = random.nextInt(a.getSize());
+            Participant fromA = a.getMembers().get(slotA);
+
+            // One in four tries looks at the bench, the rest at another team
+            boolean useBench = !bench.isEmpty() && (teams.size() < 2 || random.nextInt(4) == 0);
+            List<Participant> others = useBench ? bench : teams.get(random.nextInt(teams.size())).getMembers();
+            if (others == a.getMembers() || others.isEmpty()) continue;
+
+            int start = random.nextInt(others.size());
+            for (int k = 0; k < others.size(); k++) {
+                int slotB = (start + k) % others.size();
+                Participant fromB = others.get(slotB);
+                if (fromB.getPersonalityType() != fromA.getPersonalityType()) continue;
+                if (!fitsAfterSwap(a.getMembers(), fromA, fromB)) continue;
+                if (!useBench && !fitsAfterSwap(others, fromB, fromA)) continue;
+
+                a.getMembers().set(slotA, fromB);
+                others.set(slotB, fromA);
+                double swapped = TeamBuilder.calculateQualityScore(teams);
+                if (swapped > score) {
+                    score = swapped;
+                } else {
+                    a.getMembers().set(slotA, fromA);
+                    others.set(slotB, fromB);
+                }
+                break;
+            }
+        }
+        return score;
+    }
+
+    private static boolean fitsAfterSwap(List<Participant> members, Participant out, Participant in) {
+        int sameGame = 0;
+        for (Participant member : members) {
+            if (member != out && member.getPreferredGame().equalsIgnoreCase(in.getPreferredGame())) sameGame++;
+        }
+        return sameGame < MAX_PER_GAME;
+    }
+}
@@ -1,23 +1,80 @@
 package main;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
+/**
+ * Application log, written to DIR/PREFIX.log (./teammate.log by default).
+ *
+ * The file is rolled when it passes a size limit or the day changes. A rolled
+ * segment is renamed to PREFIX-DAY.N.log, then gzipped and pruned to the
+ * retention count on a background thread, so logging only ever pays for a rename.
+ *
+ * Settings (system properties): teammate.log.dir, teammate.log.prefix,
+ * teammate.log.maxBytes (default 10 MB) and teammate.log.retention (default 10 segments).
+ */
 public class Logger {
     private static Logger instance;
-    private final PrintWriter writer;
     private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
 
+    private final Path directory = Path.of(System.getProperty("teammate.log.dir", "."));
+    private final String prefix = System.getProperty("teammate.log.prefix", "teammate");
+    private final long maxBytes = Long.getLong("teammate.log.maxBytes", 10L * 1024 * 1024);
+    private final int retention = Integer.getInteger("teammate.log.retention", 10);
+    private final Path activeFile = directory.resolve(prefix + ".log");
+    private final ExecutorService compressor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "log-compressor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private PrintWriter writer;
+    private CountingOutputStream counter;
+    private LocalDate currentDay;
+    private long nextDayMillis;
+
+    //Counts bytes on their way to the file so the size check never touches the disk
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out, long initial) {
+            super(out);
+            count = initial;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     //Constructor
     private Logger() {
         try {
-            writer = new PrintWriter(new FileWriter("teammate.log", true));
+            Files.createDirectories(directory);
+            open();
             info("Logger initialized");
         } catch (IOException e) {
-            System.err.println("CRITICAL: Could not create log file 'teammate.log'");
+            System.err.println("CRITICAL: Could not create log file '" + activeFile + "'");
             throw new RuntimeException(e);
         }
     }
@@ -31,13 +88,16 @@ public class Logger {
 
     //Saves information with timestamp
     public synchronized void info(String message) {
+        rollIfNeeded();   // before the write, so the first line of a new day starts the new day's file
         log("INFO ", message);
     }
 
     public synchronized void error(String message, Throwable t) {
+        rollIfNeeded();
         log("ERROR", message);
-        if (t != null) {
+        if (t != null && writer != null) {
             t.printStackTrace(writer);
+            writer.flush();
         }
     }
 
@@ -53,6 +113,95 @@ public class Logger {
         if (writer != null) {
             info("Logger shutting down");
             writer.close();
+            writer = null;
+        }
+        compressor.shutdown();
+        try {
+            compressor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void open() throws IOException {
+        long existing = Files.exists(activeFile) ? Files.size(activeFile) : 0;
+
+        // A file left from an earlier day keeps that day, so the first write rolls it under the right name
+        ZoneId zone = ZoneId.systemDefault();
+        currentDay = LocalDate.now(zone);
+        if (existing > 0) {
+            LocalDate written = LocalDate.ofInstant(Files.getLastModifiedTime(activeFile).toInstant(), zone);
+            if (written.isBefore(currentDay)) currentDay = written;
+        }
+        counter = new CountingOutputStream(new FileOutputStream(activeFile.toFile(), true), existing);
+        writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8)));
+        nextDayMillis = currentDay.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    private void rollIfNeeded() {
+        if (writer == null) return;
+        if (counter.count < maxBytes && System.currentTimeMillis() < nextDayMillis) return;
+
+        try {
+            writer.close();
+            Path segment = nextSegmentName();
+            Files.move(activeFile, segment);
+            open();
+            compressor.execute(() -> compressAndPrune(segment));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not roll log file " + activeFile + ": " + e.getMessage());
+            try {
+                open();   // carry on in the same file
+            } catch (IOException reopen) {
+                writer = null;
+            }
+        }
+    }
+
+    //PREFIX-DAY.N.log with N above every segment of that day, so pruning never frees a number for reuse
+    private Path nextSegmentName() throws IOException {
+        String dayPrefix = prefix + "-" + currentDay + ".";
+        int last = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (!name.startsWith(dayPrefix)) continue;
+                int end = name.indexOf('.', dayPrefix.length());
+                try {
+                    last = Math.max(last, Integer.parseInt(name.substring(dayPrefix.length(), end)));
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    // not one of ours
+                }
+            }
+        }
+        return directory.resolve(String.format("%s%03d.log", dayPrefix, last + 1));
+    }
+
+    // Runs on the compressor thread
+    private void compressAndPrune(Path segment) {
+        Path gzip = segment.resolveSibling(segment.getFileName() + ".gz");
+        try (InputStream in = Files.newInputStream(segment);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            in.transferTo(out);
+        } catch (IOException e) {
+            System.err.println("Could not compress log segment " + segment + ": " + e.getMessage());
+            return;
+        }
+
+        try {
+            Files.delete(segment);
+            List<Path> segments = new ArrayList<>();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(p -> {
+                    String name = p.getFileName().toString();
+                    return name.startsWith(prefix + "-") && (name.endsWith(".log") || name.endsWith(".log.gz"));
+                }).sorted().forEach(segments::add);
+            }
+            for (int i = 0; i < segments.size() - retention; i++) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not prune log segments in " + directory + ": " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
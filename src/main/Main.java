@@ -1,23 +1,47 @@
 package main;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 public class Main {
     private static final String CSV_FILE = "data/participants_sample.csv";
-    private static List<Participant> participants = new ArrayList<>();
+    private static final String TEAMS_FILE = "formed_teams.csv";
+    private static final String CACHE_FILE = "formation_cache.txt";
+    private static final String PAIR_HISTORY_FILE = "pair_history.bin";
+    private static VersionedRoster roster = new VersionedRoster();
+    private static RosterIndex rosterIndex = new RosterIndex();
+    private static PairHistoryStore pairHistory = null;
+    private static RosterWatcher rosterWatcher = null;
+    private static List<Team> lastTeams = null;
+    private static int lastTeamSize;
+    private static int lastNumberOfTeams;
+    private static FormationStrategy lastStrategy;
+    private static Long lastSeed;
+    private static long lastRosterVersion;
+    private static final List<Participant> addedSinceLastFormation = new ArrayList<>();
     private static final Scanner scanner = new Scanner(System.in);
     private static final Logger logger = Logger.getInstance();
 
     //Main Method
     public static void main(String[] args) {
+        boolean daemon = args.length > 0 && args[0].equals("daemon");
+
         logger.info("=== WELCOME TO TEAMMATE ===");
 
         System.out.println(" Welcome to TeamMate – University Gaming Club Team Formation ");
+        FormationCache.enableDiskTier(CACHE_FILE);
 
         try {
-            participants = FileHandler.readParticipants(CSV_FILE);
+            List<Participant> loaded = FileHandler.readParticipants(CSV_FILE);
+            roster = new VersionedRoster(loaded);
+            rosterIndex = new RosterIndex(loaded);
         } catch (FileProcessingException e) {
             logger.error("FATAL: Cannot load participant data", e);
             System.err.println("FATAL ERROR: Cannot load participant data!");
@@ -26,9 +50,31 @@ public class Main {
             System.exit(1);
         }
 
+        try {
+            pairHistory = PairHistoryStore.open(PAIR_HISTORY_FILE);
+            TeamBuilder.usePairHistory(pairHistory);
+        } catch (FileProcessingException e) {
+            logger.error("Pair history unavailable, repeat teammates will not be penalized", e);
+            System.err.println("Warning: " + e.getMessage());
+        }
+
+        // Pick up rows other programs add to the CSV while we are running
+        try {
+            rosterWatcher = new RosterWatcher(CSV_FILE, roster, rosterIndex);
+            rosterWatcher.start();
+        } catch (IOException e) {
+            logger.error("Roster watcher unavailable, outside changes to " + CSV_FILE + " need a restart", e);
+            System.err.println("Warning: not watching " + CSV_FILE + " for changes: " + e.getMessage());
+        }
+
+        if (daemon) {
+            runDaemon();
+            return;
+        }
+
         while (true) {
             displayMenu();
-            int choice = safeReadInt("Choose option (1-3): ");
+            int choice = safeReadInt("Choose option (1-4): ");
 
             switch (choice) {
                 case 1 -> {
@@ -41,35 +87,57 @@ public class Main {
                 }
 
                 case 3 -> {
+                    logger.info("User selected: Import members from CSV");
+                    importMembers();
+                }
+
+                case 4 -> {
                     logger.info("User selected: Exit Program");
                     System.out.println("Thank you for using TeamMate!");
+                    if (rosterWatcher != null) rosterWatcher.stop();
                     scanner.close();
                     logger.close();
                     logger.info("=== TeamMate Application EXITED ===");
                     return;
                 }
-                default -> System.out.println("Invalid option. Please enter 1–3.");
+                default -> System.out.println("Invalid option. Please enter 1–4.");
             }
         }
     }
 
+    //Serves form, register and stats requests on a Unix domain socket instead of showing the menu
+    private static void runDaemon() {
+        try {
+            new TeamMateDaemon(TeamMateClient.socketPath(), CSV_FILE, TEAMS_FILE, roster, rosterIndex, pairHistory).serve();
+        } catch (IOException e) {
+            logger.error("Daemon failed", e);
+            System.err.println("Daemon failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            logger.close();
+        }
+    }
+
     //Displays the Main Menu Options
     private static void displayMenu() {
         System.out.println("\n === MAIN MENU === ");
         System.out.println("1. Add new member (Take Survey)");
         System.out.println("2. Form Teams");
-        System.out.println("3. Exit");
+        System.out.println("3. Import members from CSV");
+        System.out.println("4. Exit");
     }
 
     //Form teams by getting the team size and number of teams
     private static void formTeamsSafely() {
+        // Work on an immutable snapshot so registrations can carry on while teams are formed
+        VersionedRoster.Snapshot participants = roster.snapshot();
         if (participants.isEmpty()) {
             System.out.println("No participants available. Please add members first.");
             return;
         }
 
         // Show current participant count
-        System.out.println("\nTotal participants available: " + participants.size());
+        System.out.println("\nTotal participants available: " + participants.getStatistics());
 
         // Ask for number of teams and team size
         int numberOfTeams = safeReadPositiveInt("\nEnter number of teams to create: ");
@@ -88,38 +156,132 @@ public class Main {
             return;
         }
 
-        //Check if we have enough of each personality type
-        if (!checkPersonalityAvailability(numberOfTeams, teamSize)) {
+        //Check personality, game and role distribution
+        FeasibilityReport feasibility = FeasibilityAnalyzer.analyze(participants, numberOfTeams, teamSize);
+        if (!feasibility.isFeasible()) {
             System.out.println("Cannot create " + numberOfTeams + " balanced teams.");
+            for (String problem : feasibility.getProblems()) {
+                System.out.println(" - " + problem);
+            }
+            if (feasibility.getMaxTeams() > 0) {
+                System.out.println("At most " + feasibility.getMaxTeams() + " teams of " + teamSize + " can be formed.");
+            }
             System.out.println("\nReturning to main menu...\n");
-            logger.info("Team formation cancelled: Insufficient personality distribution \n");
+            logger.info("Team formation cancelled: " + feasibility);
             return;
         }
+        for (String warning : feasibility.getWarnings()) {
+            System.out.println("Warning: " + warning);
+        }
+
+        //Only new registrations since the last run: offer to update those teams instead of rebuilding
+        boolean repair = false;
+        if (lastTeams != null && !addedSinceLastFormation.isEmpty()
+                && lastTeamSize == teamSize && lastNumberOfTeams == numberOfTeams) {
+            String answer = safeReadString("\n" + addedSinceLastFormation.size() +
+                    " new member(s) since the last formation. Update the existing teams instead of rebuilding? (y/n): ");
+            repair = answer.equalsIgnoreCase("y");
+        }
+        FormationStrategy strategy = repair ? null : chooseStrategy();
+        String method = repair ? "Incremental repair" : strategy.toString();
+        // The same request on an unchanged roster can repeat the last seed, which is what lets it hit the cache
+        boolean sameRequest = lastSeed != null && strategy == lastStrategy && participants.getVersion() == lastRosterVersion
+                && lastTeamSize == teamSize && lastNumberOfTeams == numberOfTeams;
+        long seed = (repair || strategy == FormationStrategy.SNAKE_DRAFT) ? TeamBuilder.DEFAULT_SEED
+                : chooseSeed(sameRequest ? lastSeed : null);
+        FormationMonitor monitor = new FormationMonitor(progress -> System.out.print("\r" + progress + "    "));
 
         try {
             long start = System.currentTimeMillis();
-            List<Team> teams = TeamBuilder.buildSpecificNumberOfTeams(new ArrayList<>(participants), teamSize, numberOfTeams);
+            List<Team> teams;
+            if (repair) {
+                // Newcomers may be swapped in; whoever the last formation left out only fills open slots.
+                // Members who are no longer on the roster (e.g. after a reload) leave their teams.
+                Set<String> onRoster = new HashSet<>();
+                for (Participant p : participants) {
+                    onRoster.add(p.getId());
+                }
+                Set<String> placed = new HashSet<>();
+                List<Participant> removed = new ArrayList<>();
+                for (Team team : lastTeams) {
+                    for (Participant member : team.getMembers()) {
+                        placed.add(member.getId());
+                        if (!onRoster.contains(member.getId())) removed.add(member);
+                    }
+                }
+                Set<String> addedIds = new HashSet<>();
+                for (Participant p : addedSinceLastFormation) {
+                    addedIds.add(p.getId());
+                }
+                List<Participant> added = new ArrayList<>();
+                List<Participant> bench = new ArrayList<>();
+                for (Participant p : participants) {
+                    if (placed.contains(p.getId())) continue;
+                    if (addedIds.contains(p.getId())) added.add(p);
+                    else bench.add(p);
+                }
+                teams = TeamBuilder.repairTeams(lastTeams, added, bench, removed, teamSize);
+            } else {
+                teams = formWithProgress(participants, teamSize, numberOfTeams, strategy, seed, monitor, feasibility);
+            }
             long time = System.currentTimeMillis() - start;
 
+            // A stopped or empty run is shown, but does not replace the saved teams or touch the history
+            boolean keep = !teams.isEmpty() && !monitor.isStopRequested();
+            if (keep) {
+                lastTeams = teams;
+                lastTeamSize = teamSize;
+                lastNumberOfTeams = numberOfTeams;
+                lastStrategy = strategy;
+                lastSeed = repair ? null : seed;
+                lastRosterVersion = participants.getVersion();
+                addedSinceLastFormation.clear();
+            }
+
             int totalUsed = teams.stream().mapToInt(Team::getSize).sum();
             int remainingParticipants = participants.size() - totalUsed;
 
             System.out.println(" ===TEAM FORMATION COMPLETE!===\n");
             System.out.printf("Created: %d teams%n", teams.size());
             System.out.printf("Total participants used: %d%n", totalUsed);
+            if (!teams.isEmpty()) {
+                System.out.printf("Quality score (%s): %.2f  [%d ms]%n",
+                        method, TeamBuilder.calculateQualityScore(teams), time);
+            }
+            if (!repair && strategy != FormationStrategy.SNAKE_DRAFT) {
+                System.out.println("Seed: " + seed + " (enter it again to repeat this run)");
+            }
+            if (strategy == FormationStrategy.PORTFOLIO) {
+                System.out.println("Portfolio: " + PortfolioFormation.getLastReport());
+            } else if (strategy == FormationStrategy.EXACT && participants.size() <= ExactFormation.MAX_PARTICIPANTS) {
+                System.out.println("Exact search: " + ExactFormation.getLastReport());
+            }
+            System.out.printf("Formation cache: %d hits, %d misses%n",
+                    FormationCache.getHits(), FormationCache.getMisses());
 
             if (remainingParticipants > 0) {
                 System.out.println("\nNote: " + remainingParticipants + " members are remaining without teams.\n");
             }
 
-            logger.info(String.format("Teams formed: %d teams, %d participants used, %d remaining" ,
-                    teams.size(), totalUsed, remainingParticipants));
+            logger.info(String.format("Teams formed from roster version %d: %d teams, %d participants used, %d remaining",
+                    participants.getVersion(), teams.size(), totalUsed, remainingParticipants));
 
             for (Team team : teams) {
                 System.out.println(team);
             }
 
-            FileHandler.writeTeams(teams, "formed_teams.csv");
+            if (!keep) {
+                System.out.println("\nFormation " + (teams.isEmpty() ? "produced no teams" : "was stopped early") +
+                        ", " + TEAMS_FILE + " and the pair history were left unchanged.");
+                logger.info("Team formation result not saved: " + (teams.isEmpty() ? "no teams" : "stopped early"));
+                return;
+            }
+
+            FileHandler.writeTeams(teams, TEAMS_FILE);
+            // Only a change to the history is saved, so repeating a request can still hit the cache
+            if (TeamBuilder.recordPairHistory(participants, teamSize, numberOfTeams, strategy, seed, teams)) {
+                pairHistory.save();
+            }
 
         } catch (Exception e) {
             logger.error("Team formation failed", e);
@@ -128,53 +290,33 @@ public class Main {
         }
     }
 
-    private static boolean checkPersonalityAvailability(int numberOfTeams, int teamSize) {
-        // Count how many of each personality type we have
-        int leaderCount = 0;
-        int thinkerCount = 0;
-        int balancedCount = 0;
-
-        for (Participant p : participants) {
-            PersonalityType type = p.getPersonalityType();
-            if (type == PersonalityType.LEADER) {
-                leaderCount++;
-            } else if (type == PersonalityType.THINKER) {
-                thinkerCount++;
-            } else if (type == PersonalityType.BALANCED) {
-                balancedCount++;
+    //Runs the formation on its own thread, showing progress and stopping early when Enter is pressed
+    private static List<Team> formWithProgress(List<Participant> participants, int teamSize, int numberOfTeams,
+                                               FormationStrategy strategy, long seed, FormationMonitor monitor,
+                                               FeasibilityReport feasibility) throws Exception {
+        FutureTask<List<Team>> formation = new FutureTask<>(() -> TeamBuilder.buildSpecificNumberOfTeams(
+                participants, teamSize, numberOfTeams, strategy, seed, monitor, feasibility));
+        Thread worker = new Thread(formation, "team-formation");
+        worker.start();
+
+        System.out.println("Forming teams... press Enter to stop early and keep the best teams so far.");
+        while (!formation.isDone()) {
+            if (System.in.available() > 0 && !monitor.isStopRequested()) {
+                scanner.nextLine();
+                monitor.requestStop();
+                System.out.println("\nStopping after the current step...");
             }
+            Thread.sleep(50);
         }
+        System.out.println();
 
-        // Calculate what we need for balanced teams
-        int leadersNeeded = numberOfTeams;
-
-        // 1-2 thinkers per team
-        int thinkersNeeded;
-        if (teamSize > 3) {
-            thinkersNeeded = numberOfTeams * 2;
-        } else {
-            thinkersNeeded = numberOfTeams;
+        try {
+            return formation.get();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception cause) ? cause : e;
         }
-
-        // For balanced: fill the rest (team size - leader - thinkers)
-        int thinkersPerTeam = (teamSize > 3) ? 2 : 1;
-        int balancedPerTeam = teamSize - 1 - thinkersPerTeam;
-        int balancedNeeded = numberOfTeams * balancedPerTeam;
-
-        // Check if we have enough of each type
-        boolean hasEnoughLeaders = leaderCount >= leadersNeeded;
-        boolean hasEnoughThinkers = thinkerCount >= thinkersNeeded;
-        boolean hasEnoughBalanced = balancedCount >= balancedNeeded;
-
-        // Log the results
-        logger.info(String.format("Personality check: Leaders %d/%d, Thinkers %d/%d, Balanced %d/%d",
-                leaderCount, leadersNeeded, thinkerCount, thinkersNeeded, balancedCount, balancedNeeded));
-
-        // Return true only if we have enough of ALL personality types
-        return hasEnoughLeaders && hasEnoughThinkers && hasEnoughBalanced;
     }
 
-
     //Adding a new member by getting details through a survey
     private static void addNewMemberWithSurvey() {
         System.out.println("\n=== NEW MEMBER REGISTRATION SURVEY ===");
@@ -188,12 +330,14 @@ public class Main {
         }
 
         String email = "";
-        while (email.trim().isEmpty() || !email.contains("@")) {
+        while (email.trim().isEmpty() || !email.contains("@") || rosterIndex.containsEmail(email)) {
             email = safeReadString("Enter your email (must contain @): ");
             if (email.trim().isEmpty()) {
                 System.out.println("Error: Email cannot be empty.");
             } else if (!email.contains("@")) {
                 System.out.println("Error: Please enter a valid email address containing '@'.");
+            } else if (rosterIndex.containsEmail(email)) {
+                System.out.println("Error: This email is already registered.");
             }
         }
         String game = chooseGame();
@@ -203,10 +347,18 @@ public class Main {
 
         int skill = safeReadIntBounded("\nEnter your skill level (1=Beginner, 10=Pro): ", 10);
 
-        String id = String.format("P%03d", participants.size() + 1);
-
-        Participant newMember = new Participant(id, name, email, game, skill, role, personalityScore);
-        participants.add(newMember);
+        Participant newMember;
+        synchronized (rosterIndex) {
+            if (rosterIndex.containsEmail(email)) {   // the roster watcher picked it up while the survey ran
+                System.out.println("Error: This email was registered in the meantime.");
+                return;
+            }
+            newMember = new Participant(rosterIndex.nextId(), name, email, game, skill, role, personalityScore);
+            rosterIndex.add(newMember);
+            roster.append(newMember);
+        }
+        String id = newMember.getId();
+        addedSinceLastFormation.add(newMember);
         try {
             FileHandler.appendParticipant(CSV_FILE, newMember);
             System.out.println("Welcome, " + newMember.getName() + "! Your data has been saved.");
@@ -217,6 +369,28 @@ public class Main {
         }
     }
 
+    //Merging members from another CSV file into the roster, skipping duplicates
+    private static void importMembers() {
+        String path = safeReadString("\nEnter path of the CSV file to import: ");
+        if (path.isEmpty()) {
+            System.out.println("No file given. Returning to main menu...");
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            ImportResult result = BulkImporter.importFile(path, CSV_FILE, rosterIndex, roster);
+            long time = System.currentTimeMillis() - start;
+
+            addedSinceLastFormation.addAll(result.getImported());
+            System.out.printf("Import complete in %d ms: %s%n", time, result);
+            System.out.println("Total participants available: " + roster.size());
+        } catch (FileProcessingException e) {
+            logger.error("Import failed for " + path, e);
+            System.err.println("Error importing members: " + e.getMessage());
+        }
+    }
+
     //Asking the user to enter the preferred game from the given list
     private static String chooseGame() {
         System.out.println("\nChoose your preferred game:");
@@ -239,6 +413,34 @@ public class Main {
         return roles[choice - 1];
     }
 
+    //Asking the user which formation strategy to use
+    private static FormationStrategy chooseStrategy() {
+        System.out.println("\nChoose formation strategy:");
+        FormationStrategy[] strategies = FormationStrategy.values();
+        for (int i = 0; i < strategies.length; i++) {
+            System.out.println((i + 1) + ". " + strategies[i]);
+        }
+        int choice = safeReadIntBounded("Select (1–" + strategies.length + "): ", strategies.length);
+        return strategies[choice - 1];
+    }
+
+    //A fresh random seed for every run, unless the user gives one to repeat an earlier run
+    //A new random seed by default; when the last run had the same roster and parameters, Enter repeats it
+    private static long chooseSeed(Long previous) {
+        while (true) {
+            String input = previous == null
+                    ? safeReadString("Seed (press Enter for a new random one): ")
+                    : safeReadString("Seed (press Enter to repeat the last run with " + previous + ", 'r' for a new random one): ");
+            if (input.isEmpty()) return previous == null ? new Random().nextLong() : previous;
+            if (previous != null && input.equalsIgnoreCase("r")) return new Random().nextLong();
+            try {
+                return Long.parseLong(input);
+            } catch (NumberFormatException e) {
+                System.out.println("Error: Please enter a whole number or press Enter.");
+            }
+        }
+    }
+
     //Asking the Personality Questions
     private static int conductPersonalitySurvey() {
         System.out.println("\nPersonality Survey (1 = Strongly Disagree → 5 = Strongly Agree)");
@@ -0,0 +1,189 @@
+package main;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Remembers who has been in a team with whom across formations.
+ *
+ * Each participant ID gets a stable index, and each participant has a bitset row
+ * over those indices (allocated lazily and only as long as its highest partner),
+ * so "has X played with Y" is a single word probe. Rows are saved to a compact
+ * binary file: the ID table followed by the non-empty rows.
+ *
+ * Formation attempts read an immutable View. Recording copies the rows it touches
+ * and publishes a new view, so the attempts never lock and never see a half-recorded team.
+ */
+public class PairHistoryStore {
+    private static final Logger logger = Logger.getInstance();
+    private static final int MAGIC = 0x544d5048;   // "TMPH"
+    private static final long[] EMPTY = new long[0];
+
+    private final String filename;
+    private final Map<String, Integer> indexById = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<long[]> rows = new ArrayList<>();
+    private long formationsRecorded;
+    private volatile View view = new View(Map.of(), new long[0][], 0);
+
+    //Immutable history as of one version
+    public static final class View {
+        private final Map<String, Integer> indexById;
+        private final long[][] rows;
+        private final long version;
+
+        private View(Map<String, Integer> indexById, long[][] rows, long version) {
+            this.indexById = indexById;
+            this.rows = rows;
+            this.version = version;
+        }
+
+        //Bit index of the participant in every row, or -1 if it was never recorded
+        public int indexOf(String id) {
+            Integer index = indexById.get(id);
+            return (index == null) ? -1 : index;
+        }
+
+        //Bitset of everyone the participant has been in a team with, indexed like indexOf
+        public long[] rowOf(int index) {
+            return (index < 0 || index >= rows.length) ? EMPTY : rows[index];
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    //Constructor
+    private PairHistoryStore(String filename) {
+        this.filename = filename;
+    }
+
+    //Loads the history file, or starts an empty history if it does not exist yet
+    public static PairHistoryStore open(String filename) throws FileProcessingException {
+        PairHistoryStore store = new PairHistoryStore(filename);
+        File file = new File(filename);
+        if (!file.exists()) return store;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new FileProcessingException("Not a pair history file: " + filename, null);
+            }
+            store.formationsRecorded = in.readLong();
+            int idCount = in.readInt();
+            for (int i = 0; i < idCount; i++) {
+                store.indexOf(in.readUTF());
+            }
+            int rowCount = in.readInt();
+            for (int r = 0; r < rowCount; r++) {
+                int index = in.readInt();
+                long[] row = new long[in.readInt()];
+                for (int w = 0; w < row.length; w++) {
+                    row[w] = in.readLong();
+                }
+                store.rows.set(index, row);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read pair history " + filename, e);
+            throw new FileProcessingException("Failed to read pair history: " + filename, e);
+        }
+        store.publish();
+        logger.info("Loaded pair history for " + store.ids.size() + " participants from " + filename);
+        return store;
+    }
+
+    public synchronized void save() throws FileProcessingException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(formationsRecorded);
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                out.writeUTF(id);
+            }
+            int nonEmpty = 0;
+            for (long[] row : rows) {
+                if (row.length > 0) nonEmpty++;
+            }
+            out.writeInt(nonEmpty);
+            for (int i = 0; i < rows.size(); i++) {
+                long[] row = rows.get(i);
+                if (row.length == 0) continue;
+                out.writeInt(i);
+                out.writeInt(row.length);
+                for (long word : row) {
+                    out.writeLong(word);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to write pair history " + filename, e);
+            throw new FileProcessingException("Failed to write pair history: " + filename, e);
+        }
+    }
+
+    //Marks every pair inside each team as having played together.
+    //Returns false, and leaves the version alone, when every pair was already known.
+    public synchronized boolean record(List<Team> teams) {
+        int newPairs = 0;
+        Set<Integer> copied = new HashSet<>();
+        for (Team team : teams) {
+            List<Participant> members = team.getMembers();
+            int[] indices = new int[members.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = indexOf(members.get(i).getId());
+            }
+            for (int a = 0; a < indices.length; a++) {
+                for (int b = a + 1; b < indices.length; b++) {
+                    if (setBit(indices[a], indices[b], copied)) newPairs++;
+                    setBit(indices[b], indices[a], copied);
+                }
+            }
+        }
+        if (newPairs == 0) return false;
+        formationsRecorded++;
+        publish();
+        logger.info("Recorded pair history for " + teams.size() + " teams, " + newPairs + " new pairs");
+        return true;
+    }
+
+    //Current immutable history, O(1)
+    public View view() {
+        return view;
+    }
+
+    //Changes every time a recorded formation adds a pair, so cached results can tell the history moved on
+    public synchronized long getVersion() {
+        return formationsRecorded;
+    }
+
+    private int indexOf(String id) {
+        Integer index = indexById.get(id);
+        if (index != null) return index;
+        index = ids.size();
+        indexById.put(id, index);
+        ids.add(id);
+        rows.add(EMPTY);
+        return index;
+    }
+
+    //Returns true if the bit was not set before. A row is copied the first time a
+    //record touches it, because the published view may still be reading the old one.
+    private boolean setBit(int row, int bit, Set<Integer> copied) {
+        long[] words = rows.get(row);
+        int word = bit >>> 6;
+        if (word >= words.length) {
+            words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            rows.set(row, words);
+            copied.add(row);
+        } else if (copied.add(row)) {
+            words = words.clone();
+            rows.set(row, words);
+        }
+        long before = words[word];
+        words[word] |= 1L << bit;
+        return words[word] != before;
+    }
+
+    private void publish() {
+        view = new View(new HashMap<>(indexById), rows.toArray(new long[0][]), formationsRecorded);
+    }
+}
@@ -0,0 +1,212 @@
+package main;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs several formation methods side by side and lets a multi-armed bandit decide
+ * which one each worker runs next.
+ *
+ * Arms: a single randomized greedy attempt, a greedy attempt followed by local search,
+ * and the snake draft. The reward of a run is how far it lifted the best score so far,
+ * divided by the CPU milliseconds it took. Each arm keeps an exponentially weighted
+ * average of its recent rewards. Workers pick the arm with the highest average, apart
+ * from a small share of random picks, so threads drift toward whatever is paying off
+ * on this roster. The log ends with how the CPU time was split between the arms.
+ *
+ * Pulls still running at the deadline are interrupted and not counted, once at least one
+ * pull has produced teams (or the overrun limit passed). Which arm runs
+ * when depends on timing, so the result is never cached under the seed.
+ */
+public class PortfolioFormation {
+    private static final Logger logger = Logger.getInstance();
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final double EXPLORE_RATE = 0.1;
+    private static final double REWARD_DECAY = 0.3;   // weight of the newest reward
+    private static final int LOCAL_SEARCH_TRIES = 300;
+    private static final long POLL_INTERVAL_MS = 50;
+    private static final long CANCEL_GRACE_MS = 1000;
+    private static final long OVERRUN_LIMIT_MS = 30_000;   // past the deadline, when nothing has finished yet
+
+    public static final long DEFAULT_TIME_BUDGET_MS = Long.getLong("teammate.portfolio.timeBudgetMs", 2000);
+    public static final int DEFAULT_WORKERS = Integer.getInteger("teammate.portfolio.workers",
+            Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private enum Arm {
+        GREEDY("Greedy"),
+        GREEDY_LOCAL_SEARCH("Greedy + local search"),
+        SNAKE_DRAFT("Snake draft");
+
+        private final String name;
+
+        Arm(String name) { this.name = name; }
+
+        @Override
+        public String toString() { return name; }
+    }
+
+    // Bandit state, guarded by this. Pulls count completed runs only.
+    private final boolean[] tried = new boolean[Arm.values().length];
+    private final long[] pulls = new long[Arm.values().length];
+    private final long[] cpuNanos = new long[Arm.values().length];
+    private final long[] wins = new long[Arm.values().length];
+    private final double[] averageReward = new double[Arm.values().length];
+    private List<Team> best;
+    private double bestScore = Double.NEGATIVE_INFINITY;
+
+    private final List<Participant> participants;
+    private final int teamSize;
+    private final int numberOfTeams;
+    private final Random random;
+    private final FormationMonitor monitor;
+    private static volatile String lastReport = "";
+
+    private PortfolioFormation(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                               FormationMonitor monitor) {
+        this.participants = participants;
+        this.teamSize = teamSize;
+        this.numberOfTeams = numberOfTeams;
+        this.random = new Random(seed);
+        this.monitor = monitor;
+    }
+
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams, long seed,
+                                       FormationMonitor monitor) {
+        return new PortfolioFormation(participants, teamSize, numberOfTeams, seed, monitor)
+                .run(DEFAULT_WORKERS, DEFAULT_TIME_BUDGET_MS);
+    }
+
+    //How the last portfolio run split its CPU time between the arms
+    public static String getLastReport() {
+        return lastReport;
+    }
+
+    private List<Team> run(int workers, long timeBudgetMillis) {
+        long deadline = System.currentTimeMillis() + timeBudgetMillis;
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        for (int w = 0; w < workers; w++) {
+            long workerSeed = random.nextLong();
+            pool.execute(() -> work(new Random(workerSeed), deadline));
+        }
+        pool.shutdown();
+        try {
+            // Workers stop between pulls at the deadline. A pull that overruns it is interrupted
+            // unless it may be the first result, and a stop request interrupts everything.
+            while (!pool.awaitTermination(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                long now = System.currentTimeMillis();
+                if (monitor.isStopRequested() || (now >= deadline && hasResult()) || now >= deadline + OVERRUN_LIMIT_MS) {
+                    pool.shutdownNow();
+                    if (!pool.awaitTermination(CANCEL_GRACE_MS, TimeUnit.MILLISECONDS)) {
+                        logger.info("Portfolio formation: a pull ignored cancellation, returning without it");
+                    }
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.error("Portfolio formation interrupted", e);
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        monitor.markTimeLimited();
+
+        synchronized (this) {
+            lastReport = report();
+            logger.info("Portfolio formation: " + lastReport);
+            return (best == null) ? new ArrayList<>() : best;
+        }
+    }
+
+    private void work(Random workerRandom, long deadline) {
+        while (System.currentTimeMillis() < deadline && !monitor.isStopRequested()) {
+            Arm arm = choose(workerRandom);
+            long start = cpuTime();
+            List<Team> teams = pull(arm, workerRandom);
+            if (Thread.currentThread().isInterrupted()) return;   // cancelled mid-pull, not a completed run
+            double score = teams.isEmpty() ? Double.NaN : TeamBuilder.calculateQualityScore(teams);
+            long spent = Math.max(1, cpuTime() - start);
+
+            reward(arm, teams, score, spent);
+            monitor.unitCompleted(score);
+        }
+    }
+
+    private synchronized boolean hasResult() {
+        return best != null;
+    }
+
+    private List<Team> pull(Arm arm, Random workerRandom) {
+        if (arm == Arm.SNAKE_DRAFT) {
+            return SnakeDraftFormation.formTeams(participants, teamSize, numberOfTeams);
+        }
+        List<List<Team>> results = new ArrayList<>();
+        new TeamFormationTask(participants, teamSize, results, numberOfTeams, workerRandom.nextLong()).run();
+        if (results.isEmpty()) return new ArrayList<>();   // the attempt was cancelled
+        List<Team> teams = results.get(0);
+        if (arm == Arm.GREEDY_LOCAL_SEARCH) {
+            LocalSearch.improve(teams, participants, workerRandom, LOCAL_SEARCH_TRIES);
+        }
+        return teams;
+    }
+
+    //Every arm is tried once, then mostly the best recent earner with some random exploration
+    private synchronized Arm choose(Random workerRandom) {
+        Arm[] arms = Arm.values();
+        for (Arm arm : arms) {
+            if (!tried[arm.ordinal()]) {
+                tried[arm.ordinal()] = true;   // claimed, so other workers try the next arm
+                return arm;
+            }
+        }
+        if (workerRandom.nextDouble() < EXPLORE_RATE) {
+            return arms[workerRandom.nextInt(arms.length)];
+        }
+
+        Arm chosen = arms[0];
+        for (Arm arm : arms) {
+            if (averageReward[arm.ordinal()] > averageReward[chosen.ordinal()]
+                    || (averageReward[arm.ordinal()] == averageReward[chosen.ordinal()] && workerRandom.nextBoolean())) {
+                chosen = arm;
+            }
+        }
+        return chosen;
+    }
+
+    //Reward is the lift over the best score so far per CPU millisecond
+    private synchronized void reward(Arm arm, List<Team> teams, double score, long spentNanos) {
+        int i = arm.ordinal();
+        pulls[i]++;
+        cpuNanos[i] += spentNanos;
+
+        double lift = 0;
+        if (!Double.isNaN(score) && score > bestScore) {
+            lift = (best == null) ? 0 : score - bestScore;   // the very first result has nothing to lift
+            best = teams;
+            bestScore = score;
+            wins[i]++;
+        }
+        double rate = lift / (spentNanos / 1e6);
+        averageReward[i] = (pulls[i] == 1) ? rate : REWARD_DECAY * rate + (1 - REWARD_DECAY) * averageReward[i];
+    }
+
+    private String report() {
+        long totalNanos = 0;
+        for (long nanos : cpuNanos) totalNanos += nanos;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("best %.2f, %.0f CPU ms", bestScore, totalNanos / 1e6));
+        for (Arm arm : Arm.values()) {
+            int i = arm.ordinal();
+            sb.append(String.format("; %s %d runs, %.0f%% of time, %d improvements",
+                    arm, pulls[i], totalNanos == 0 ? 0 : 100.0 * cpuNanos[i] / totalNanos, wins[i]));
+        }
+        return sb.toString();
+    }
+
+    private static long cpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -0,0 +1,109 @@
+package main;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hash indexes over the roster for O(1) lookup by participant ID and by email,
+ * plus a monotonic ID allocator so new IDs never collide with existing ones.
+ * Lookups are safe from any thread. Both maps sit behind one volatile reference,
+ * so replaceAll() swaps them together and a reader never sees half of a reload.
+ *
+ * The index and the VersionedRoster change together, so every writer holds this
+ * index's lock across both steps (synchronized (index) { add or replaceAll; roster
+ * append or replaceAll }). Writers therefore never interleave, and a registration
+ * can't land in the roster between a reload's new index and its new roster.
+ */
+public class RosterIndex {
+    private static final class Maps {
+        final Map<String, Participant> byId = new ConcurrentHashMap<>();
+        final Map<String, Participant> byEmail = new ConcurrentHashMap<>();
+    }
+
+    private volatile Maps maps = new Maps();
+    private final AtomicInteger lastIdNumber = new AtomicInteger();
+
+    //Constructor
+    public RosterIndex() {
+    }
+
+    public RosterIndex(List<Participant> participants) {
+        for (Participant p : participants) {
+            add(p);
+        }
+    }
+
+    //Adds a participant, returns false (and changes nothing) if the ID or email is taken
+    public synchronized boolean add(Participant p) {
+        return add(maps, p);
+    }
+
+    //Rebuilds the index from a freshly loaded roster and swaps it in as one step
+    public synchronized void replaceAll(List<Participant> participants) {
+        Maps fresh = new Maps();
+        for (Participant p : participants) {
+            add(fresh, p);
+        }
+        maps = fresh;
+    }
+
+    private boolean add(Maps target, Participant p) {
+        String email = normalizeEmail(p.getEmail());
+        if (target.byId.containsKey(p.getId()) || target.byEmail.containsKey(email)) {
+            return false;
+        }
+        target.byId.put(p.getId(), p);
+        target.byEmail.put(email, p);
+        reserveId(p.getId());
+        return true;
+    }
+
+    public Participant findById(String id) {
+        return maps.byId.get(id);
+    }
+
+    public Participant findByEmail(String email) {
+        return maps.byEmail.get(normalizeEmail(email));
+    }
+
+    public boolean containsId(String id) {
+        return maps.byId.containsKey(id);
+    }
+
+    public boolean containsEmail(String email) {
+        return maps.byEmail.containsKey(normalizeEmail(email));
+    }
+
+    public int size() {
+        return maps.byId.size();
+    }
+
+    //Makes sure nextId() never hands out this ID, even if it is not registered yet
+    public void reserveId(String id) {
+        lastIdNumber.accumulateAndGet(idNumber(id), Math::max);
+    }
+
+    //Next free ID in the "P001" format, always above every ID seen so far
+    public String nextId() {
+        return String.format("P%03d", lastIdNumber.incrementAndGet());
+    }
+
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    //Numeric part of an ID like "P042", 0 if it has none
+    private static int idNumber(String id) {
+        int i = 0;
+        while (i < id.length() && !Character.isDigit(id.charAt(i))) i++;
+        if (i == id.length()) return 0;
+        try {
+            return Integer.parseInt(id.substring(i));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
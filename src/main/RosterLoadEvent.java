@@ -0,0 +1,16 @@
+package main;
+
+import jdk.jfr.*;
+
+//JFR event for FileHandler.readParticipants
+@Name("teammate.RosterLoad")
+@Label("Roster Load")
+@Category("TeamMate")
+@StackTrace(false)
+public class RosterLoadEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Roster Size")
+    int rosterSize;
+}
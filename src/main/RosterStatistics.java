@@ -0,0 +1,110 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Immutable personality, role, game and skill histograms of a roster.
+ *
+ * Each VersionedRoster snapshot carries the statistics for exactly its participants.
+ * Appending builds the next statistics from the previous ones plus the new rows, so
+ * keeping them current costs O(rows added + distinct values) and every query is O(1).
+ */
+public final class RosterStatistics {
+    public static final int MAX_SKILL = 10;
+    private static final RosterStatistics EMPTY = new RosterStatistics(0, 0,
+            new int[PersonalityType.values().length], new int[Role.values().length],
+            new int[MAX_SKILL + 1], new HashMap<>(), new ArrayList<>(), new int[0]);
+
+    private final int size;
+    private final long skillSum;
+    private final int[] personalityCounts;
+    private final int[] roleCounts;
+    private final int[] skillCounts;          // index is the skill level, out-of-range levels are clamped
+    private final Map<String, Integer> gameIndex;   // lower-cased game name -> slot
+    private final List<String> gameNames;     // first spelling seen for each slot
+    private final int[] gameCounts;
+
+    private RosterStatistics(int size, long skillSum, int[] personalityCounts, int[] roleCounts, int[] skillCounts,
+                             Map<String, Integer> gameIndex, List<String> gameNames, int[] gameCounts) {
+        this.size = size;
+        this.skillSum = skillSum;
+        this.personalityCounts = personalityCounts;
+        this.roleCounts = roleCounts;
+        this.skillCounts = skillCounts;
+        this.gameIndex = gameIndex;
+        this.gameNames = gameNames;
+        this.gameCounts = gameCounts;
+    }
+
+    public static RosterStatistics of(List<Participant> participants) {
+        return EMPTY.plus(participants);
+    }
+
+    //Statistics of this roster with the given participants added; this instance is unchanged
+    public RosterStatistics plus(List<Participant> added) {
+        if (added.isEmpty()) return this;
+
+        int[] personalities = personalityCounts.clone();
+        int[] roles = roleCounts.clone();
+        int[] skills = skillCounts.clone();
+        Map<String, Integer> index = new HashMap<>(gameIndex);
+        List<String> names = new ArrayList<>(gameNames);
+        int[] games = Arrays.copyOf(gameCounts, Math.max(gameCounts.length, 8));
+        long sum = skillSum;
+
+        for (Participant p : added) {
+            personalities[p.getPersonalityType().ordinal()]++;
+            roles[p.getPreferredRole().ordinal()]++;
+            skills[Math.max(0, Math.min(MAX_SKILL, p.getSkillLevel()))]++;
+            sum += p.getSkillLevel();
+
+            String game = p.getPreferredGame();
+            Integer slot = index.get(game.toLowerCase(Locale.ROOT));
+            if (slot == null) {
+                slot = names.size();
+                index.put(game.toLowerCase(Locale.ROOT), slot);
+                names.add(game);
+                if (slot >= games.length) games = Arrays.copyOf(games, games.length * 2);
+            }
+            games[slot]++;
+        }
+        return new RosterStatistics(size + added.size(), sum, personalities, roles, skills,
+                index, names, Arrays.copyOf(games, names.size()));
+    }
+
+    public int size() { return size; }
+
+    public int count(PersonalityType type) { return personalityCounts[type.ordinal()]; }
+
+    public int count(Role role) { return roleCounts[role.ordinal()]; }
+
+    public int countGame(String game) {
+        Integer slot = gameIndex.get(game.toLowerCase(Locale.ROOT));
+        return (slot == null) ? 0 : gameCounts[slot];
+    }
+
+    public int countSkill(int level) {
+        return (level < 0 || level > MAX_SKILL) ? 0 : skillCounts[level];
+    }
+
+    public double getAverageSkill() {
+        return size == 0 ? 0 : (double) skillSum / size;
+    }
+
+    //Copies of the histograms, in enum order for personalities and roles
+    public int[] getPersonalityCounts() { return personalityCounts.clone(); }
+    public int[] getRoleCounts() { return roleCounts.clone(); }
+    public int[] getGameCounts() { return gameCounts.clone(); }
+    public List<String> getGames() { return Collections.unmodifiableList(gameNames); }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(size).append(" participants");
+        for (PersonalityType type : PersonalityType.values()) {
+            sb.append(", ").append(type).append(' ').append(personalityCounts[type.ordinal()]);
+        }
+        sb.append(", avg skill ").append(Math.round(getAverageSkill() * 100) / 100.0);
+        return sb.toString();
+    }
+}
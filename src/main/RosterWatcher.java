@@ -0,0 +1,235 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps a roster in step with its CSV file while another process edits it.
+ *
+ * The watcher remembers how many bytes of the file it has consumed and the last
+ * few KB before that point. When the file changes and those bytes are still there,
+ * the change was an append and only the new complete lines are parsed. Anything
+ * else (a shorter file, edited rows) falls back to a full reload. New rows are
+ * checked against the index, so rows this process wrote itself are skipped.
+ */
+public class RosterWatcher implements Runnable {
+    private static final Logger logger = Logger.getInstance();
+    private static final int TAIL_CHECK_BYTES = 4096;
+
+    private final Path file;
+    private final VersionedRoster roster;
+    private final RosterIndex index;
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    // Bytes of the file already turned into participants, and the bytes just before that point
+    private long offset;
+    private byte[] tailCheck = new byte[0];
+    private int lineCount;
+
+    //Constructor
+    public RosterWatcher(String filename, VersionedRoster roster, RosterIndex index) {
+        this.file = Path.of(filename).toAbsolutePath();
+        this.roster = roster;
+        this.index = index;
+    }
+
+    //Takes the current file as already loaded and starts watching for changes
+    public synchronized void start() throws IOException {
+        markConsumed(completeLength());
+        lineCount = countLines();
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        thread = new Thread(this, "roster-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching " + file + " for roster changes from byte " + offset);
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException e) {
+            logger.error("Could not close roster watcher", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                Object context = event.context();
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || (context instanceof Path path && path.equals(file.getFileName()))) {
+                    changed = true;
+                }
+            }
+            key.reset();
+            if (changed) {
+                refresh();
+            }
+        }
+    }
+
+    //Brings the roster up to date with the file, parsing only the new rows when it can
+    public synchronized void refresh() {
+        try {
+            if (!Files.exists(file)) return;   // mid-replace by an editor, the create event follows
+            long size = Files.size(file);
+            if (size >= offset && tailUnchanged()) {
+                if (size > offset) readAppended(size);
+            } else {
+                reload();
+            }
+        } catch (IOException | FileProcessingException e) {
+            logger.error("Could not refresh roster from " + file, e);
+        }
+    }
+
+    private void readAppended(long size) throws IOException {
+        byte[] bytes = new byte[(int) (size - offset)];
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            raf.seek(offset);
+            raf.readFully(bytes);
+        }
+        int end = lastNewline(bytes) + 1;
+        if (end == 0) return;   // half-written line, wait for the rest
+
+        List<Participant> parsed = new ArrayList<>();
+        int skipped = 0;
+        for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\r?\n")) {
+            lineCount++;
+            if (line.trim().isEmpty()) continue;
+            try {
+                Participant p = FileHandler.parseParticipant(line, lineCount);
+                if (p != null) {
+                    parsed.add(p);
+                } else {
+                    skipped++;
+                }
+            } catch (InvalidParticipantDataException e) {
+                logger.info("Roster watcher skipped invalid line " + lineCount + ": " + e.getMessage());
+                skipped++;
+            }
+        }
+        markConsumed(offset + end);
+
+        List<Participant> added = new ArrayList<>(parsed.size());
+        long version = 0;
+        synchronized (index) {
+            for (Participant p : parsed) {
+                if (index.add(p)) added.add(p);
+            }
+            if (!added.isEmpty()) version = roster.appendAll(added);
+        }
+        skipped += parsed.size() - added.size();
+
+        if (!added.isEmpty()) {
+            FormationCache.invalidate();
+            logger.info("Roster watcher appended " + added.size() + " participants (" + skipped +
+                    " skipped), roster version " + version);
+        }
+    }
+
+    //Reparses the complete lines of the file; an empty or half-written file is a rewrite in progress
+    private void reload() throws IOException, FileProcessingException {
+        long length = completeLength();
+        String text = new String(readRange(0, length), StandardCharsets.UTF_8);
+        int headerEnd = text.indexOf('\n');
+        if (headerEnd < 0 || text.substring(headerEnd + 1).isBlank()) {
+            logger.info("Roster watcher found no complete rows in " + file + ", waiting for the rewrite to finish");
+            return;
+        }
+        List<Participant> participants = FileHandler.readParticipantsQuietly(new StringReader(text), file.toString());
+        long version;
+        synchronized (index) {
+            index.replaceAll(participants);
+            version = roster.replaceAll(participants);
+        }
+        FormationCache.invalidate();
+        markConsumed(length);
+        lineCount = countLines();
+        logger.info("Roster watcher reloaded " + participants.size() + " participants, roster version " + version);
+    }
+
+    //Moves the consumed point and remembers the bytes just before it
+    private void markConsumed(long newOffset) throws IOException {
+        offset = newOffset;
+        tailCheck = readRange(Math.max(0, offset - TAIL_CHECK_BYTES), offset);
+    }
+
+    private boolean tailUnchanged() throws IOException {
+        return Arrays.equals(tailCheck, readRange(Math.max(0, offset - TAIL_CHECK_BYTES), offset));
+    }
+
+    private byte[] readRange(long from, long to) throws IOException {
+        byte[] bytes = new byte[(int) (to - from)];
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            if (raf.length() < to) return new byte[0];
+            raf.seek(from);
+            raf.readFully(bytes);
+        }
+        return bytes;
+    }
+
+    //Length of the file up to and including its last newline
+    private long completeLength() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            long position = raf.length();
+            byte[] buffer = new byte[TAIL_CHECK_BYTES];
+            while (position > 0) {
+                int chunk = (int) Math.min(buffer.length, position);
+                position -= chunk;
+                raf.seek(position);
+                raf.readFully(buffer, 0, chunk);
+                for (int i = chunk - 1; i >= 0; i--) {
+                    if (buffer[i] == '\n') return position + i + 1;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private int countLines() throws IOException {
+        int lines = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            byte[] buffer = new byte[8192];
+            long left = offset;
+            int read;
+            while (left > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, left))) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') lines++;
+                }
+                left -= read;
+            }
+        }
+        return lines;
+    }
+
+    private static int lastNewline(byte[] bytes) {
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,15 @@
+package main;
+
+//Plain loop implementation of BatchScorer, also the reference for the vector version
+public class ScalarBatchScorer implements BatchScorer {
+
+    @Override
+    public void score(int count, int[] game, int[] role, int[] personality, int[] skill, double[] bonus,
+                      double[] gameTerm, double[] roleTerm, double[] personalityTerm, double[] skillTerm,
+                      double[] out) {
+        for (int i = 0; i < count; i++) {
+            out[i] = gameTerm[game[i]] + roleTerm[role[i]] + personalityTerm[personality[i]]
+                    - skillTerm[skill[i]] * 2 + bonus[i];
+        }
+    }
+}
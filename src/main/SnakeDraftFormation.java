@@ -0,0 +1,144 @@
+package main;
+
+import java.util.*;
+
+/**
+ * Fast constructive formation for quick previews and very large rosters.
+ * Participants are bucketed by personality, each team is seeded with one leader
+ * and one or two thinkers, and the rest are snake-drafted in skill order.
+ * Runs in O(n log n) (the sorts) plus O(games) per pick.
+ */
+public class SnakeDraftFormation {
+    private static final int MAX_PER_GAME = 2;
+
+    public static List<Team> formTeams(List<Participant> participants, int teamSize, int numberOfTeams) {
+        List<Team> teams = new ArrayList<>();
+        if (participants.isEmpty()) return teams;
+
+        int teamCount;
+        int targetSize;
+        if (participants.size() < teamSize) {
+            teamCount = 1;
+            targetSize = participants.size();
+        } else {
+            teamCount = Math.min(numberOfTeams, participants.size() / teamSize);
+            targetSize = teamSize;
+        }
+
+        // Map each game to a small index so the per-team counters are plain arrays
+        Map<String, Integer> gameIds = new HashMap<>();
+        for (Participant p : participants) {
+            gameIds.putIfAbsent(gameKey(p), gameIds.size());
+        }
+        int gameCount = gameIds.size();
+
+        List<Participant> leaders = new ArrayList<>();
+        List<Participant> thinkers = new ArrayList<>();
+        List<Participant> balanced = new ArrayList<>();
+        for (Participant p : participants) {
+            PersonalityType type = p.getPersonalityType();
+            if (type == PersonalityType.LEADER) leaders.add(p);
+            else if (type == PersonalityType.THINKER) thinkers.add(p);
+            else balanced.add(p);
+        }
+
+        DraftPool leaderPool = new DraftPool(leaders, gameIds, gameCount);
+        DraftPool thinkerPool = new DraftPool(thinkers, gameIds, gameCount);
+        DraftPool balancedPool = new DraftPool(balanced, gameIds, gameCount);
+
+        int[][] gameCounts = new int[teamCount][gameCount];
+        for (int i = 0; i < teamCount; i++) {
+            teams.add(new Team(i + 1));
+        }
+
+        //Seed: 1 leader, then 1-2 thinkers, alternating direction each round
+        boolean forward = true;
+        forward = draftRound(teams, gameCounts, targetSize, forward, gameIds, leaderPool);
+        int thinkersNeeded = (targetSize > 3) ? 2 : 1;
+        for (int i = 0; i < thinkersNeeded; i++) {
+            forward = draftRound(teams, gameCounts, targetSize, forward, gameIds, thinkerPool);
+        }
+
+        //Snake-draft everyone else, preferring balanced members over spare leaders/thinkers
+        boolean picked = true;
+        while (picked) {
+            picked = false;
+            for (int step = 0; step < teamCount; step++) {
+                int t = forward ? step : teamCount - 1 - step;
+                Team team = teams.get(t);
+                if (team.getSize() >= targetSize) continue;
+
+                Participant p = balancedPool.poll(gameCounts[t]);
+                if (p == null) p = thinkerPool.poll(gameCounts[t]);
+                if (p == null) p = leaderPool.poll(gameCounts[t]);
+                if (p != null) {
+                    addToTeam(team, gameCounts[t], gameIds, p);
+                    picked = true;
+                }
+            }
+            forward = !forward;
+        }
+
+        teams.removeIf(team -> team.getSize() == 0);
+        return teams;
+    }
+
+    //One pick per team from the given pool, returns the direction for the next round
+    private static boolean draftRound(List<Team> teams, int[][] gameCounts, int targetSize, boolean forward,
+                                      Map<String, Integer> gameIds, DraftPool pool) {
+        int teamCount = teams.size();
+        for (int step = 0; step < teamCount; step++) {
+            int t = forward ? step : teamCount - 1 - step;
+            Team team = teams.get(t);
+            if (team.getSize() >= targetSize) continue;
+
+            Participant p = pool.poll(gameCounts[t]);
+            if (p != null) {
+                addToTeam(team, gameCounts[t], gameIds, p);
+            }
+        }
+        return !forward;
+    }
+
+    private static void addToTeam(Team team, int[] teamGameCounts, Map<String, Integer> gameIds, Participant p) {
+        team.addMember(p);
+        teamGameCounts[gameIds.get(gameKey(p))]++;
+    }
+
+    private static String gameKey(Participant p) {
+        return p.getPreferredGame().toLowerCase();
+    }
+
+    /**
+     * Participants of one personality bucket, split into per-game queues that are
+     * each ordered by skill (highest first).
+     */
+    private static class DraftPool {
+        private final List<ArrayDeque<Participant>> byGame = new ArrayList<>();
+
+        DraftPool(List<Participant> people, Map<String, Integer> gameIds, int gameCount) {
+            for (int g = 0; g < gameCount; g++) {
+                byGame.add(new ArrayDeque<>());
+            }
+            people.sort(Comparator.comparingInt(Participant::getSkillLevel).reversed());
+            for (Participant p : people) {
+                byGame.get(gameIds.get(gameKey(p))).addLast(p);
+            }
+        }
+
+        //Highest-skill participant whose game is still under the cap for this team
+        Participant poll(int[] teamGameCounts) {
+            int bestGame = -1;
+            int bestSkill = Integer.MIN_VALUE;
+            for (int g = 0; g < byGame.size(); g++) {
+                Participant head = byGame.get(g).peekFirst();
+                if (head == null || teamGameCounts[g] >= MAX_PER_GAME) continue;
+                if (head.getSkillLevel() > bestSkill) {
+                    bestSkill = head.getSkillLevel();
+                    bestGame = g;
+                }
+            }
+            return bestGame < 0 ? null : byGame.get(bestGame).pollFirst();
+        }
+    }
+}
@@ -5,58 +5,269 @@ import java.util.concurrent.*;
 
 public class TeamBuilder {
     private static final Logger logger = Logger.getInstance();
+    private static final FormationMetrics metrics = FormationMetrics.getInstance();
+    public static final long DEFAULT_SEED = 42;
+    private static final int GREEDY_ATTEMPTS = 4;
+    private static final long GREEDY_TIMEOUT_MS = 30_000;
+    private static final long POLL_INTERVAL_MS = 50;
+    private static volatile PairHistoryStore pairHistory;
+
+    //Penalizes repeat teammates from this history in greedy attempts, pass null to turn it off
+    public static void usePairHistory(PairHistoryStore history) {
+        pairHistory = history;
+    }
 
     //Creates specific number of teams with given team size
     public static List<Team> buildSpecificNumberOfTeams(List<Participant> participants,
                                                         int teamSize,
                                                         int numberOfTeams) {
+        return buildSpecificNumberOfTeams(participants, teamSize, numberOfTeams, FormationStrategy.RANDOMIZED_GREEDY);
+    }
+
+    //Creates specific number of teams with given team size using the chosen strategy
+    public static List<Team> buildSpecificNumberOfTeams(List<Participant> participants,
+                                                        int teamSize,
+                                                        int numberOfTeams,
+                                                        FormationStrategy strategy) {
+        return buildSpecificNumberOfTeams(participants, teamSize, numberOfTeams, strategy, DEFAULT_SEED);
+    }
+
+    //Same as above with an explicit seed, the same roster, parameters and seed always give the same teams
+    public static List<Team> buildSpecificNumberOfTeams(List<Participant> participants,
+                                                        int teamSize,
+                                                        int numberOfTeams,
+                                                        FormationStrategy strategy,
+                                                        long seed) {
+        return buildSpecificNumberOfTeams(participants, teamSize, numberOfTeams, strategy, seed, null);
+    }
+
+    //Same as above, reporting progress to the monitor and stopping early when it asks to
+    public static List<Team> buildSpecificNumberOfTeams(List<Participant> participants,
+                                                        int teamSize,
+                                                        int numberOfTeams,
+                                                        FormationStrategy strategy,
+                                                        long seed,
+                                                        FormationMonitor monitor) {
+        return buildSpecificNumberOfTeams(participants, teamSize, numberOfTeams, strategy, seed, monitor, null);
+    }
+
+    //Same as above, reusing a feasibility report the caller already has for this request (null to analyze here)
+    public static List<Team> buildSpecificNumberOfTeams(List<Participant> participants,
+                                                        int teamSize,
+                                                        int numberOfTeams,
+                                                        FormationStrategy strategy,
+                                                        long seed,
+                                                        FormationMonitor monitor,
+                                                        FeasibilityReport feasibility) {
         // Validation
         if (teamSize <= 0) teamSize = 5;
         if (numberOfTeams <= 0) numberOfTeams = 1;
         if (participants.isEmpty()) return new ArrayList<>();
 
-        logger.info("Starting team formation: " + participants.size() + " participants, " +
+        FormationEvent event = new FormationEvent();
+        event.begin();
+        logger.info("Starting team formation (" + strategy + "): " + participants.size() + " participants, " +
                 numberOfTeams + " teams of size " + teamSize);
 
-        // Check if we have enough people
-        int totalNeeded = numberOfTeams * teamSize;
-        if (totalNeeded > participants.size()) {
-            logger.info("Warning: Not enough participants for requested teams.");
+        // One view of the history for the whole formation, the same version the cache key names
+        PairHistoryStore store = pairHistory;
+        PairHistoryStore.View history = (store == null) ? null : store.view();
+        long historyVersion = (history == null) ? -1 : history.getVersion();
+        String cacheKey = FormationCache.key(participants, teamSize, numberOfTeams, strategy, seed, historyVersion);
+        List<Team> cached = FormationCache.get(cacheKey, participants);
+        if (cached != null) {
+            logger.info("Team formation served from cache: " + cached.size() + " teams");
+            if (!cached.isEmpty()) {
+                logger.info(String.format("Quality score (%s): %.2f", strategy, calculateQualityScore(cached)));
+            }
+            logDetailedStatistics(cached);
+            commitEvent(event, participants, teamSize, numberOfTeams, strategy, seed, cached, true);
+            return cached;
+        }
+
+        // Reject requests the roster cannot satisfy before spending any threads on them
+        if (feasibility == null || !feasibility.isFor(numberOfTeams, teamSize)) {
+            long feasibilityStart = System.nanoTime();
+            feasibility = FeasibilityAnalyzer.analyze(participants, numberOfTeams, teamSize);
+            metrics.recordFeasibility(System.nanoTime() - feasibilityStart);
+        }
+        if (!feasibility.isFeasible()) {
+            logger.info("Team formation skipped: " + feasibility);
+            commitEvent(event, participants, teamSize, numberOfTeams, strategy, seed, List.of(), false);
+            return new ArrayList<>();
+        }
+
+        if (monitor == null) monitor = new FormationMonitor(null);
+        List<Team> bestTeams;
+        if (strategy == FormationStrategy.SNAKE_DRAFT) {
+            monitor.start(1, 0);
+            bestTeams = SnakeDraftFormation.formTeams(participants, teamSize, numberOfTeams);
+            monitor.unitCompleted(bestTeams.isEmpty() ? Double.NaN : calculateQualityScore(bestTeams));
+        } else if (strategy == FormationStrategy.GENETIC) {
+            monitor.start(GeneticFormation.DEFAULT_GENERATIONS, GeneticFormation.DEFAULT_TIME_BUDGET_MS);
+            bestTeams = GeneticFormation.formTeams(participants, teamSize, numberOfTeams, seed, monitor);
+        } else if (strategy == FormationStrategy.EXACT && participants.size() <= ExactFormation.MAX_PARTICIPANTS) {
+            monitor.start(0, ExactFormation.DEFAULT_TIME_LIMIT_MS);
+            bestTeams = ExactFormation.formTeams(participants, teamSize, numberOfTeams, seed, monitor);
+        } else if (strategy == FormationStrategy.PORTFOLIO) {
+            monitor.start(0, PortfolioFormation.DEFAULT_TIME_BUDGET_MS);
+            bestTeams = PortfolioFormation.formTeams(participants, teamSize, numberOfTeams, seed, monitor);
+        } else {
+            if (strategy == FormationStrategy.EXACT) {
+                logger.info("Exact search only handles up to " + ExactFormation.MAX_PARTICIPANTS +
+                        " participants, using randomized greedy for " + participants.size());
+            }
+            monitor.start(GREEDY_ATTEMPTS, GREEDY_ATTEMPTS, GREEDY_TIMEOUT_MS);
+            bestTeams = runGreedyAttempts(participants, teamSize, numberOfTeams, seed, history, monitor);
+        }
+        monitor.finish();
+
+        for (int i = 0; i < bestTeams.size(); i++) {
+            bestTeams.get(i).setTeamNumber(i + 1);
+        }
+
+        int totalUsed = 0;
+        for (Team team : bestTeams) {
+            totalUsed += team.getSize();
+        }
+
+        logger.info("Team formation completed: " + bestTeams.size() + " teams created with " +
+                totalUsed + " participants");
+        if (!bestTeams.isEmpty()) {
+            logger.info(String.format("Quality score (%s): %.2f", strategy, calculateQualityScore(bestTeams)));
+        }
+        logDetailedStatistics(bestTeams);
+        // A stopped, clock-limited or empty run is not the answer for these parameters and seed, so it is not cached
+        if (bestTeams.isEmpty()) {
+            logger.info("No teams formed, nothing cached");
+        } else if (monitor.isStopRequested()) {
+            logger.info("Team formation stopped early, result not cached");
+        } else if (monitor.isTimeLimited()) {
+            logger.info("Team formation ran out of time, result not cached");
+        } else {
+            FormationCache.put(cacheKey, bestTeams);
+        }
+        commitEvent(event, participants, teamSize, numberOfTeams, strategy, seed, bestTeams, false);
+        return bestTeams;
+    }
+
+    /**
+     * Records teams the caller is about to use in the pair history and returns true if that
+     * added any pair. Teams already recorded (a cache hit, the same teams again) change nothing.
+     * A cached result for these parameters is filed again under the new history version, so
+     * repeating the request returns these teams instead of a fresh, differently penalized run.
+     * Pass a null strategy for teams that did not come from buildSpecificNumberOfTeams.
+     */
+    public static boolean recordPairHistory(List<Participant> participants, int teamSize, int numberOfTeams,
+                                            FormationStrategy strategy, long seed, List<Team> teams) {
+        PairHistoryStore history = pairHistory;
+        if (history == null || teams.isEmpty()) return false;
+        synchronized (history) {
+            long before = history.getVersion();
+            if (!history.record(teams)) return false;
+            if (strategy != null) {
+                FormationCache.refile(FormationCache.key(participants, teamSize, numberOfTeams, strategy, seed, before),
+                        FormationCache.key(participants, teamSize, numberOfTeams, strategy, seed, history.getVersion()),
+                        teams);
+            }
+            return true;
+        }
+    }
+
+    //Fills in the JFR event only when a recording wants it, so this is nearly free otherwise
+    private static void commitEvent(FormationEvent event, List<Participant> participants, int teamSize,
+                                    int numberOfTeams, FormationStrategy strategy, long seed,
+                                    List<Team> teams, boolean cacheHit) {
+        if (!event.shouldCommit()) return;
+        event.rosterSize = participants.size();
+        event.teamSize = teamSize;
+        event.numberOfTeams = numberOfTeams;
+        event.strategy = strategy.name();
+        event.seed = seed;
+        event.teamsFormed = teams.size();
+        event.qualityScore = teams.isEmpty() ? 0 : calculateQualityScore(teams);
+        event.cacheHit = cacheHit;
+        event.commit();
+    }
+
+    //Updates a previous team set for roster changes, keeping existing assignments where possible;
+    //added are the registrations since that formation, bench everyone else it left without a team
+    public static List<Team> repairTeams(List<Team> previousTeams, List<Participant> added, List<Participant> bench,
+                                         List<Participant> removed, int teamSize) {
+        logger.info("Starting incremental team repair: " + previousTeams.size() + " teams, +" +
+                added.size() + "/-" + removed.size() + " members, " + bench.size() + " on the bench");
+
+        List<Team> teams = IncrementalTeamRepair.repair(previousTeams, added, bench, removed, teamSize);
+        for (int i = 0; i < teams.size(); i++) {
+            teams.get(i).setTeamNumber(i + 1);
+        }
+        if (!teams.isEmpty()) {
+            logger.info(String.format("Quality score (incremental repair): %.2f", calculateQualityScore(teams)));
         }
+        return teams;
+    }
 
-        int numberOfAttempts = 4;
+    //Runs independent randomized greedy attempts in parallel and keeps the best one
+    private static List<Team> runGreedyAttempts(List<Participant> participants, int teamSize, int numberOfTeams,
+                                                long seed, PairHistoryStore.View history, FormationMonitor monitor) {
+        int numberOfAttempts = GREEDY_ATTEMPTS;
         List<List<Team>> allAttempts = new ArrayList<>();
 
         ExecutorService threadPool = Executors.newFixedThreadPool(numberOfAttempts);
+        CompletionService<Object> completion = new ExecutorCompletionService<>(threadPool);
 
         for (int i = 0; i < numberOfAttempts; i++) {
-            threadPool.submit(new TeamFormationTask(participants, teamSize, allAttempts, numberOfTeams));
+            completion.submit(new TeamFormationTask(participants, teamSize, allAttempts, numberOfTeams, seed + i, history).metered(), null);
         }
 
         threadPool.shutdown();
+        // Wait for attempts one by one so progress can be reported and a stop request noticed
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GREEDY_TIMEOUT_MS);
+        int reported = 0;
         try {
-            threadPool.awaitTermination(30, TimeUnit.SECONDS);
+            int finished = 0;
+            while (finished < numberOfAttempts && !monitor.isStopRequested() && System.nanoTime() < deadline) {
+                if (completion.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS) != null) {
+                    finished++;
+                    reported = reportAttempts(allAttempts, reported, monitor);
+                }
+            }
         } catch (InterruptedException e) {
             logger.error("Thread pool interrupted during team formation", e);
             threadPool.shutdownNow();
             Thread.currentThread().interrupt();
         }
-
-        List<Team> bestTeams = pickBestTeamSet(allAttempts);
-
-        for (int i = 0; i < bestTeams.size(); i++) {
-            bestTeams.get(i).setTeamNumber(i + 1);
+        if (reported < numberOfAttempts) {
+            if (!monitor.isStopRequested()) monitor.markTimeLimited();
+            logger.info("Greedy formation " + (monitor.isStopRequested() ? "stopped" : "timed out") + " after " +
+                    reported + " of " + numberOfAttempts + " attempts");
+            threadPool.shutdownNow();   // unfinished attempts notice the interrupt and drop their teams
         }
 
-        int totalUsed = 0;
-        for (Team team : bestTeams) {
-            totalUsed += team.getSize();
+        long selectionStart = System.nanoTime();
+        List<Team> best;
+        int finished;
+        synchronized (allAttempts) {
+            best = pickBestTeamSet(allAttempts);
+            finished = allAttempts.size();
         }
+        metrics.recordSelection(System.nanoTime() - selectionStart);
+        // Every attempt that produced a result other than the one kept was rejected; the rest never finished
+        metrics.recordRejectedAttempts(best.isEmpty() ? finished : finished - 1);
+        metrics.recordUnfinishedAttempts(numberOfAttempts - finished);
+        return best;
+    }
 
-        logger.info("Team formation completed: " + bestTeams.size() + " teams created with " +
-                totalUsed + " participants");
-        logDetailedStatistics(bestTeams);
-        return bestTeams;
+    //Passes finished attempts to the monitor, scored here rather than on the worker threads
+    private static int reportAttempts(List<List<Team>> allAttempts, int reported, FormationMonitor monitor) {
+        synchronized (allAttempts) {
+            for (; reported < allAttempts.size(); reported++) {
+                List<Team> attempt = allAttempts.get(reported);
+                boolean scored = monitor.isListening() && !attempt.isEmpty();
+                monitor.unitCompleted(scored ? calculateQualityScore(attempt) : Double.NaN);
+            }
+        }
+        return reported;
     }
 
     /**
@@ -71,6 +282,7 @@ public class TeamBuilder {
             if (attempt.isEmpty()) continue;  // Skip empty attempts
 
             double score = calculateQualityScore(attempt);
+            metrics.recordAttemptQuality(score);
 
             if (score > bestScore) {
                 bestScore = score;
@@ -85,7 +297,8 @@ public class TeamBuilder {
         return bestTeamSet;
     }
 
-    private static double calculateQualityScore(List<Team> teams) {
+    //Overall quality of a team set, used to compare attempts and strategies
+    public static double calculateQualityScore(List<Team> teams) {
         double totalScore = 0;
 
         //Skill Balance Across Teams
@@ -130,80 +343,86 @@ public class TeamBuilder {
 
     private static double scoreGameVariety(List<Team> teams) {
         double totalScore = 0;
-
         for (Team team : teams) {
-            Map<String, Integer> gameCounts = new HashMap<>();
-
-            for (Participant member : team.getMembers()) {
-                String game = member.getPreferredGame();
-                gameCounts.put(game, gameCounts.getOrDefault(game, 0) + 1);
-            }
-
-            // Checks if there are more than 2 same game in one team
-            boolean hasViolation = false;
-            for (int count : gameCounts.values()) {
-                if (count > 2) {
-                    hasViolation = true;
-                    break;
-                }
-            }
-            if (hasViolation) {
-                totalScore += 0;
-            } else {
-                int uniqueGames = gameCounts.size();
-                int totalMembers = team.getSize();
-                double diversityRatio = (double) uniqueGames / totalMembers;
-                totalScore += diversityRatio * 100;
-            }
+            totalScore += scoreGameVariety(team);
         }
         return totalScore / teams.size();
     }
 
     private static double scoreRoleDiversity(List<Team> teams) {
         double totalScore = 0;
-
         for (Team team : teams) {
-            Set<Role> uniqueRoles = new HashSet<>();
-            for (Participant member : team.getMembers()) {
-                uniqueRoles.add(member.getPreferredRole());
-            }
-
-            int uniqueRoleCount = uniqueRoles.size();
-            int teamSize = team.getSize();
-
-            if (teamSize > 5 && uniqueRoleCount < 3) {
-                totalScore += 30;  // Penalty: didn't meet requirement
-            } else {
-                double diversityRatio = (double) uniqueRoleCount / teamSize;
-                totalScore += diversityRatio * 100;
-            }
+            totalScore += scoreRoleDiversity(team);
         }
-
         return totalScore / teams.size();
     }
 
     private static double scorePersonalityMix(List<Team> teams) {
         double totalScore = 0;
-
         for (Team team : teams) {
-            // Count each personality type
-            int leaderCount = 0;
-            int thinkerCount = 0;
-            int balancedCount = 0;
-
-            for (Participant member : team.getMembers()) {
-                PersonalityType type = member.getPersonalityType();
-                if (type == PersonalityType.LEADER) leaderCount++;
-                else if (type == PersonalityType.THINKER) thinkerCount++;
-                else if (type == PersonalityType.BALANCED) balancedCount++;
+            totalScore += scorePersonalityMix(team);
+        }
+        return totalScore / teams.size();
+    }
+
+    /**
+     * Weighted game, role and personality score of a single team. The team-set score
+     * is the average of this over all teams plus the skill balance and size terms,
+     * so local moves can be compared by looking at the teams they touch.
+     */
+    static double scoreTeamComposition(Team team) {
+        if (team.getSize() == 0) return 0;   // the per-team ratios below would be 0/0
+        return scoreGameVariety(team) * 15 + scoreRoleDiversity(team) * 12 + scorePersonalityMix(team) * 10;
+    }
+
+    private static double scoreGameVariety(Team team) {
+        Map<String, Integer> gameCounts = new HashMap<>();
+
+        for (Participant member : team.getMembers()) {
+            String game = member.getPreferredGame();
+            gameCounts.put(game, gameCounts.getOrDefault(game, 0) + 1);
+        }
+
+        // Checks if there are more than 2 same game in one team
+        for (int count : gameCounts.values()) {
+            if (count > 2) {
+                return 0;
             }
+        }
+        int uniqueGames = gameCounts.size();
+        int totalMembers = team.getSize();
+        double diversityRatio = (double) uniqueGames / totalMembers;
+        return diversityRatio * 100;
+    }
+
+    private static double scoreRoleDiversity(Team team) {
+        Set<Role> uniqueRoles = new HashSet<>();
+        for (Participant member : team.getMembers()) {
+            uniqueRoles.add(member.getPreferredRole());
+        }
 
-            double teamScore = getTeamScore(leaderCount, thinkerCount);
+        int uniqueRoleCount = uniqueRoles.size();
+        int teamSize = team.getSize();
 
-            totalScore += teamScore;
+        if (teamSize > 5 && uniqueRoleCount < 3) {
+            return 30;  // Penalty: didn't meet requirement
         }
+        double diversityRatio = (double) uniqueRoleCount / teamSize;
+        return diversityRatio * 100;
+    }
 
-        return totalScore / teams.size();
+    private static double scorePersonalityMix(Team team) {
+        // Count each personality type
+        int leaderCount = 0;
+        int thinkerCount = 0;
+
+        for (Participant member : team.getMembers()) {
+            PersonalityType type = member.getPersonalityType();
+            if (type == PersonalityType.LEADER) leaderCount++;
+            else if (type == PersonalityType.THINKER) thinkerCount++;
+        }
+
+        return getTeamScore(leaderCount, thinkerCount);
     }
 
     private static double getTeamScore(int leaderCount, int thinkerCount) {
@@ -231,31 +450,7 @@ public class TeamBuilder {
         logger.info("========== DETAILED TEAM STATISTICS ==========");
 
         for (Team team : teams) {
-            Map<String, Integer> gameCounts = new HashMap<>();
-            for (Participant member : team.getMembers()) {
-                String game = member.getPreferredGame();
-                gameCounts.put(game, gameCounts.getOrDefault(game, 0) + 1);
-            }
-
-            Map<Role, Integer> roleCounts = new HashMap<>();
-            for (Participant member : team.getMembers()) {
-                Role role = member.getPreferredRole();
-                roleCounts.put(role, roleCounts.getOrDefault(role, 0) + 1);
-            }
-
-            // Count personalities
-            Map<PersonalityType, Integer> personalityCounts = new HashMap<>();
-            for (Participant member : team.getMembers()) {
-                PersonalityType type = member.getPersonalityType();
-                personalityCounts.put(type, personalityCounts.getOrDefault(type, 0) + 1);
-            }
-
-            // Log everything
-            logger.info(String.format("Team %d: Size=%d, AvgSkill=%.2f",
-                    team.getTeamNumber(), team.getSize(), team.getAverageSkill()));
-            logger.info("  Games: " + gameCounts);
-            logger.info("  Roles: " + roleCounts);
-            logger.info("  Personalities: " + personalityCounts);
+            logger.info(TeamSummary.of(team).toString());
         }
 
         logger.info("=============================================");
@@ -0,0 +1,19 @@
+package main;
+
+import jdk.jfr.*;
+
+//JFR event for FileHandler.writeTeams
+@Name("teammate.TeamExport")
+@Label("Team Export")
+@Category("TeamMate")
+@StackTrace(false)
+public class TeamExportEvent extends Event {
+    @Label("File")
+    String file;
+
+    @Label("Teams")
+    int teams;
+
+    @Label("Participants")
+    int participants;
+}
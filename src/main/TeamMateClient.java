@@ -0,0 +1,62 @@
+package main;
+
+import java.io.*;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Thin client for TeamMateDaemon: sends one request and prints the reply.
+ *
+ * Run it as its own entry point, java main.TeamMateClient form 4 5, so a call loads
+ * nothing but this class: no Logger, no log file, no roster. The socket path comes
+ * from the teammate.socket property, as for the daemon. Interrupting the client (Ctrl-C)
+ * closes the connection, which stops a running form request on the daemon.
+ */
+public class TeamMateClient {
+    public static final String DEFAULT_SOCKET_NAME = "teammate.sock";
+
+    public static void main(String[] args) {
+        System.exit(send(socketPath(), args));
+    }
+
+    //Socket the daemon listens on and the client connects to
+    public static String socketPath() {
+        return System.getProperty("teammate.socket", DEFAULT_SOCKET_NAME);
+    }
+
+    //Returns the process exit code: 0 on success, 1 if the daemon reported an error, 2 if it is not running
+    public static int send(String socketPath, String[] request) {
+        if (request.length == 0) {
+            System.err.println("Usage: java main.TeamMateClient form|register|stats|stop [arguments...]");
+            return 1;
+        }
+
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            PrintWriter out = new PrintWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8)));
+            out.println(String.join("\t", request));
+            out.flush();
+
+            BufferedReader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            int exitCode = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("PROGRESS ")) {
+                    System.err.println(line.substring("PROGRESS ".length()));
+                } else if (line.startsWith("WARNING ")) {
+                    System.err.println(line);
+                } else if (line.startsWith("ERROR")) {
+                    System.err.println(line);
+                    exitCode = 1;
+                } else {
+                    System.out.println(line);
+                }
+            }
+            return exitCode;
+        } catch (IOException e) {
+            System.err.println("Cannot reach the TeamMate daemon at " + socketPath + ": " + e.getMessage());
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package main;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the roster, its index, the pair history and a warmed-up formation engine
+ * in one long-running JVM and serves requests on a Unix domain socket, so scripts
+ * do not pay for JVM startup and a full CSV parse on every run.
+ *
+ * Protocol: one request per connection. The client sends a single line of
+ * tab-separated words and reads lines until the daemon closes the connection.
+ * Progress lines start with "PROGRESS", warnings about the roster with "WARNING",
+ * and a failed request ends with "ERROR <reason>". A form request stops early, keeping
+ * the best teams so far, when the client sends a "cancel" line or closes its end of the
+ * connection, so a client has to keep the connection open until the reply ends.
+ * Stopped or empty results are reported but not exported or recorded in the pair history.
+ *
+ *   form TEAMS SIZE [STRATEGY] [SEED]
+ *   register NAME EMAIL GAME SKILL ROLE PERSONALITY_SCORE
+ *   stats
+ *   stop
+ */
+public class TeamMateDaemon {
+    private static final Logger logger = Logger.getInstance();
+    private static final int WARMUP_ATTEMPTS = 20;
+
+    private final Path socketPath;
+    private final String csvFile;
+    private final String teamsFile;
+    private final VersionedRoster roster;
+    private final RosterIndex rosterIndex;
+    private final PairHistoryStore pairHistory;
+    private final Object exportLock = new Object();   // formed_teams.csv and the pair history file
+    private final ExecutorService handlers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "daemon-request");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ServerSocketChannel server;
+    private volatile boolean running;
+
+    //Constructor
+    public TeamMateDaemon(String socketPath, String csvFile, String teamsFile, VersionedRoster roster,
+                          RosterIndex rosterIndex, PairHistoryStore pairHistory) {
+        this.socketPath = Path.of(socketPath);
+        this.csvFile = csvFile;
+        this.teamsFile = teamsFile;
+        this.roster = roster;
+        this.rosterIndex = rosterIndex;
+        this.pairHistory = pairHistory;
+    }
+
+    //Binds the socket and serves requests until a stop request arrives
+    public void serve() throws IOException {
+        if (Files.exists(socketPath)) {
+            if (isAnswering(socketPath)) {
+                throw new IOException("A daemon is already listening on " + socketPath);
+            }
+            Files.delete(socketPath);   // left behind by a daemon that did not shut down cleanly
+        }
+
+        warmUp();
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+        running = true;
+        logger.info("Daemon listening on " + socketPath + " with " + roster.size() + " participants");
+        System.out.println("TeamMate daemon listening on " + socketPath);
+
+        try {
+            while (running) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (IOException e) {
+                    if (!running) break;   // closed by a stop request
+                    throw e;
+                }
+                handlers.execute(() -> handle(client));
+            }
+        } finally {
+            handlers.shutdown();
+            server.close();
+            Files.deleteIfExists(socketPath);
+            logger.info("Daemon stopped");
+        }
+    }
+
+    private static boolean isAnswering(Path path) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(path)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    //Runs greedy attempts outside the cache so the first real request hits compiled code
+    private void warmUp() {
+        List<Participant> participants = roster.snapshot();
+        if (participants.isEmpty()) return;
+        long start = System.currentTimeMillis();
+        List<List<Team>> results = new ArrayList<>();
+        for (int i = 0; i < WARMUP_ATTEMPTS; i++) {
+            new TeamFormationTask(participants, 5, results, 0, i).run();
+            TeamBuilder.calculateQualityScore(results.get(i));
+        }
+        logger.info("Daemon warm-up: " + WARMUP_ATTEMPTS + " attempts in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel;
+             BufferedReader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8)))) {
+            String line = in.readLine();
+            if (line == null || line.isBlank()) {
+                out.println("ERROR empty request");
+                return;
+            }
+            String[] args = line.split("\t");
+            logger.info("Daemon request: " + args[0]);
+            try {
+                switch (args[0]) {
+                    case "form" -> form(args, in, out);
+                    case "register" -> register(args, out);
+                    case "stats" -> stats(out);
+                    case "stop" -> stop(out);
+                    default -> out.println("ERROR unknown command: " + args[0]);
+                }
+            } catch (IllegalArgumentException e) {
+                out.println("ERROR " + e.getMessage());
+            } catch (Exception e) {
+                logger.error("Daemon request failed: " + line, e);
+                out.println("ERROR " + e.getMessage());
+            }
+        } catch (IOException e) {
+            logger.error("Daemon connection failed", e);
+        }
+    }
+
+    // form <teams> <size> [strategy] [seed]
+    private void form(String[] args, BufferedReader in, PrintWriter out) throws FileProcessingException {
+        if (args.length < 3) throw new IllegalArgumentException("usage: form <teams> <size> [strategy] [seed]");
+        int numberOfTeams = parsePositive(args[1], "number of teams");
+        int teamSize = parsePositive(args[2], "team size");
+        FormationStrategy strategy = (args.length > 3) ? parseStrategy(args[3]) : FormationStrategy.RANDOMIZED_GREEDY;
+        long seed = (args.length > 4) ? Long.parseLong(args[4]) : TeamBuilder.DEFAULT_SEED;
+
+        VersionedRoster.Snapshot participants = roster.snapshot();
+        FeasibilityReport feasibility = FeasibilityAnalyzer.analyze(participants, numberOfTeams, teamSize);
+        if (!feasibility.isFeasible()) {
+            throw new IllegalArgumentException(String.join("; ", feasibility.getProblems()));
+        }
+
+        long start = System.nanoTime();
+        FormationMonitor monitor = new FormationMonitor(progress -> {
+            out.println("PROGRESS " + progress);
+            out.flush();
+        });
+        for (String warning : feasibility.getWarnings()) {
+            out.println("WARNING " + warning);
+        }
+        AtomicBoolean finished = new AtomicBoolean();
+        handlers.execute(() -> stopOnCancel(in, monitor, finished));
+        List<Team> teams;
+        try {
+            teams = TeamBuilder.buildSpecificNumberOfTeams(participants, teamSize, numberOfTeams,
+                    strategy, seed, monitor, feasibility);
+        } finally {
+            finished.set(true);
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        boolean keep = !teams.isEmpty() && !monitor.isStopRequested();
+
+        for (Team team : teams) {
+            StringBuilder sb = new StringBuilder("Team ").append(team.getTeamNumber()).append(':');
+            for (Participant p : team.getMembers()) {
+                sb.append(' ').append(p.getId());
+            }
+            out.println(sb);
+        }
+        out.printf("OK %d teams from roster version %d, quality %.2f, %.3f ms%s%n", teams.size(),
+                participants.getVersion(), teams.isEmpty() ? 0 : TeamBuilder.calculateQualityScore(teams), millis,
+                keep ? "" : (teams.isEmpty() ? ", nothing saved" : ", stopped early, not saved"));
+        if (!keep) {
+            logger.info("Daemon form " + (teams.isEmpty() ? "formed no teams" : "was stopped") +
+                    ", " + teamsFile + " and the pair history left unchanged");
+            return;
+        }
+
+        // Requests run in parallel, but the export and the history file take one writer at a time
+        synchronized (exportLock) {
+            FileHandler.writeTeams(teams, teamsFile);
+            if (pairHistory != null
+                    && TeamBuilder.recordPairHistory(participants, teamSize, numberOfTeams, strategy, seed, teams)) {
+                pairHistory.save();
+            }
+        }
+    }
+
+    //Runs beside a form request: a "cancel" line or the client going away stops the formation.
+    //Closing the connection after the reply ends the read, and then there is nothing left to stop
+    private static void stopOnCancel(BufferedReader in, FormationMonitor monitor, AtomicBoolean finished) {
+        try {
+            String line;
+            while ((line = in.readLine()) != null && !line.trim().equals("cancel")) {
+                // anything else on the connection is ignored
+            }
+        } catch (IOException e) {
+            // connection closed or reset
+        }
+        if (!finished.get()) {
+            monitor.requestStop();
+            logger.info("Daemon form cancelled by the client");
+        }
+    }
+
+    // register <name> <email> <game> <skill> <role> <personalityScore>
+    private void register(String[] args, PrintWriter out) throws FileProcessingException {
+        if (args.length < 7) {
+            throw new IllegalArgumentException("usage: register <name> <email> <game> <skill> <role> <personalityScore>");
+        }
+        String name = args[1].trim();
+        String email = args[2].trim();
+        String game = args[3].trim();
+        int skill = parsePositive(args[4], "skill");
+        Role role = Role.fromString(args[5].trim());
+        int personalityScore = parsePositive(args[6], "personality score");
+        if (name.isEmpty() || game.isEmpty()) throw new IllegalArgumentException("name and game are required");
+        if (!email.contains("@")) throw new IllegalArgumentException("invalid email: " + email);
+        if (skill > 10) throw new IllegalArgumentException("skill must be between 1 and 10");
+        if (personalityScore < 20 || personalityScore > 100) {
+            throw new IllegalArgumentException("personality score must be between 20 and 100");
+        }
+
+        Participant member;
+        synchronized (rosterIndex) {   // the lock every roster writer takes, see RosterIndex
+            if (rosterIndex.containsEmail(email)) throw new IllegalArgumentException("email already registered: " + email);
+            member = new Participant(rosterIndex.nextId(), name, email, game, skill, role.toString(), personalityScore);
+            rosterIndex.add(member);
+            roster.append(member);
+            FileHandler.appendParticipant(csvFile, member);
+        }
+        logger.info("Daemon registered " + member.getId() + " | " + name + " | " + game + " | Skill: " + skill);
+        out.println("OK registered " + member.getId() + " (" + member.getPersonalityType() + "), roster size " + roster.size());
+    }
+
+    private void stats(PrintWriter out) {
+        FormationMetrics metrics = FormationMetrics.getInstance();
+        VersionedRoster.Snapshot snapshot = roster.snapshot();
+        out.println("Roster: " + snapshot.getStatistics() + ", version " + snapshot.getVersion());
+        out.println("Formation cache: " + FormationCache.getHits() + " hits, " + FormationCache.getMisses() + " misses");
+        out.println("Pair history: " + (pairHistory == null ? "off" : pairHistory.getVersion() + " formations recorded"));
+        out.println("Attempts run: " + metrics.getAttemptsRun() + ", rejected: " + metrics.getRejectedAttempts() +
+                ", unfinished: " + metrics.getUnfinishedAttempts());
+        out.println("Attempt latency: " + metrics.getAttemptLatency());
+        out.println("Selection latency: " + metrics.getSelectionLatency());
+        out.println("Attempt quality: " + metrics.getAttemptQuality());
+        out.println("OK");
+    }
+
+    private void stop(PrintWriter out) throws IOException {
+        running = false;
+        out.println("OK stopping");
+        server.close();
+    }
+
+    private static int parsePositive(String text, String what) {
+        try {
+            int value = Integer.parseInt(text.trim());
+            if (value <= 0) throw new IllegalArgumentException(what + " must be positive");
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + what + ": " + text);
+        }
+    }
+
+    private static FormationStrategy parseStrategy(String text) {
+        for (FormationStrategy strategy : FormationStrategy.values()) {
+            if (strategy.name().equalsIgnoreCase(text) || strategy.toString().equalsIgnoreCase(text)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("unknown strategy: " + text);
+    }
+}
@@ -0,0 +1,98 @@
+package main;
+
+//Counts for one team gathered in a single pass over its members, for logs and the UI
+public final class TeamSummary {
+    private final int teamNumber;
+    private final int size;
+    private final int skillSum;
+    private final int minSkill;
+    private final int maxSkill;
+    private final int[] personalityCounts = new int[PersonalityType.values().length];
+    private final int[] roleCounts = new int[Role.values().length];
+    private final String[] games;
+    private final int[] gameCounts;
+    private int distinctGames;
+
+    private TeamSummary(Team team) {
+        teamNumber = team.getTeamNumber();
+        size = team.getSize();
+        games = new String[size];
+        gameCounts = new int[size];
+
+        int sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (Participant member : team.getMembers()) {
+            personalityCounts[member.getPersonalityType().ordinal()]++;
+            roleCounts[member.getPreferredRole().ordinal()]++;
+            int skill = member.getSkillLevel();
+            sum += skill;
+            min = Math.min(min, skill);
+            max = Math.max(max, skill);
+
+            // A team has only a handful of games, a linear scan beats hashing here
+            String game = member.getPreferredGame();
+            int slot = 0;
+            while (slot < distinctGames && !games[slot].equals(game)) slot++;
+            if (slot == distinctGames) games[distinctGames++] = game;
+            gameCounts[slot]++;
+        }
+        skillSum = sum;
+        minSkill = size == 0 ? 0 : min;
+        maxSkill = size == 0 ? 0 : max;
+    }
+
+    public static TeamSummary of(Team team) {
+        return new TeamSummary(team);
+    }
+
+    public int getTeamNumber() { return teamNumber; }
+    public int getSize() { return size; }
+    public double getAverageSkill() { return size == 0 ? 0 : (double) skillSum / size; }
+    public int getMinSkill() { return minSkill; }
+    public int getMaxSkill() { return maxSkill; }
+    public int getDistinctGames() { return distinctGames; }
+    public int count(PersonalityType type) { return personalityCounts[type.ordinal()]; }
+    public int count(Role role) { return roleCounts[role.ordinal()]; }
+
+    public int getDistinctRoles() {
+        int distinct = 0;
+        for (int count : roleCounts) {
+            if (count > 0) distinct++;
+        }
+        return distinct;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("Team ").append(teamNumber).append(": Size=").append(size)
+                .append(", AvgSkill=").append(Math.round(getAverageSkill() * 100) / 100.0)
+                .append(" (").append(minSkill).append('-').append(maxSkill).append(')');
+
+        sb.append(", Games: {");
+        for (int i = 0; i < distinctGames; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(games[i]).append('=').append(gameCounts[i]);
+        }
+
+        sb.append("}, Roles: {");
+        boolean first = true;
+        for (Role role : Role.values()) {
+            if (roleCounts[role.ordinal()] == 0) continue;
+            if (!first) sb.append(", ");
+            sb.append(role).append('=').append(roleCounts[role.ordinal()]);
+            first = false;
+        }
+
+        sb.append("}, Personalities: {");
+        first = true;
+        for (PersonalityType type : PersonalityType.values()) {
+            if (personalityCounts[type.ordinal()] == 0) continue;
+            if (!first) sb.append(", ");
+            sb.append(type).append('=').append(personalityCounts[type.ordinal()]);
+            first = false;
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,119 @@
+package main;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Append-only roster with cheap immutable snapshots.
+ *
+ * Participants live in a shared array that is only ever written past the end of
+ * the latest snapshot (and copied when it grows), so a snapshot is just the array,
+ * a length and a version number. Readers never lock: they read the volatile current
+ * snapshot. Writers only serialize with each other, never with readers, so a long
+ * formation on one snapshot does not hold up registrations.
+ *
+ * Each snapshot also carries the RosterStatistics of its participants. An append
+ * derives them from the previous snapshot's, so histograms never need a rescan.
+ */
+public class VersionedRoster {
+    private static final int INITIAL_CAPACITY = 16;
+
+    //Immutable view of the roster at one version
+    public static final class Snapshot extends AbstractList<Participant> implements RandomAccess {
+        private final Participant[] items;
+        private final int size;
+        private final long version;
+        private final RosterStatistics statistics;
+
+        private Snapshot(Participant[] items, int size, long version, RosterStatistics statistics) {
+            this.items = items;
+            this.size = size;
+            this.version = version;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Participant get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            return items[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        //Histograms of exactly this snapshot's participants, O(1)
+        public RosterStatistics getStatistics() {
+            return statistics;
+        }
+    }
+
+    private final Object writeLock = new Object();
+    private Participant[] items;
+    private volatile Snapshot current;
+
+    //Constructor
+    public VersionedRoster() {
+        items = new Participant[INITIAL_CAPACITY];
+        current = new Snapshot(items, 0, 0, RosterStatistics.of(List.of()));
+    }
+
+    public VersionedRoster(List<Participant> participants) {
+        items = participants.toArray(new Participant[Math.max(INITIAL_CAPACITY, participants.size())]);
+        current = new Snapshot(items, participants.size(), 1, RosterStatistics.of(participants));
+    }
+
+    //Current roster, O(1) and never blocks
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+    //Appends one participant and returns the new version
+    public long append(Participant p) {
+        return appendAll(List.of(p));
+    }
+
+    //Appends all participants as a single new version
+    public long appendAll(List<Participant> participants) {
+        synchronized (writeLock) {
+            Snapshot latest = current;
+            int size = latest.size();
+            int needed = size + participants.size();
+            if (needed > items.length) {
+                items = Arrays.copyOf(items, Math.max(needed, items.length * 2));
+            }
+            for (Participant p : participants) {
+                items[size++] = p;
+            }
+            current = new Snapshot(items, size, latest.getVersion() + 1, latest.getStatistics().plus(participants));
+            return current.getVersion();
+        }
+    }
+
+    //Swaps in a completely new roster, e.g. after a full reload from disk
+    public long replaceAll(List<Participant> participants) {
+        synchronized (writeLock) {
+            long version = current.getVersion() + 1;
+            items = participants.toArray(new Participant[Math.max(INITIAL_CAPACITY, participants.size())]);
+            current = new Snapshot(items, participants.size(), version, RosterStatistics.of(participants));
+            return version;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package main;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the batch scorer against the scalar one and times both on a large
+ * synthetic candidate pool. A development tool, not part of the application build.
+ *
+ * Both scorers are warmed up before anything is timed, then timed in alternating
+ * order over several trials, and the median pass of each is reported, so neither
+ * gains from running second in a warmer JVM.
+ *
+ * Build and run (the second javac needs the incubator module, the first does not):
+ *   javac -d out src/main/*.java
+ *   javac --add-modules jdk.incubator.vector -cp out -d out vector/src/main/*.java
+ *   java --add-modules jdk.incubator.vector -cp out main.BatchScorerBenchmark [poolSize]
+ */
+public class BatchScorerBenchmark {
+    private static final int ROUNDS = 50;
+    private static final int TRIALS = 10;
+
+    public static void main(String[] args) {
+        int poolSize = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(7);
+
+        int[] game = new int[poolSize];
+        int[] role = new int[poolSize];
+        int[] personality = new int[poolSize];
+        int[] skill = new int[poolSize];
+        double[] bonus = new double[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            game[i] = random.nextInt(7);
+            role[i] = random.nextInt(Role.values().length);
+            personality[i] = random.nextInt(PersonalityType.values().length);
+            skill[i] = random.nextInt(10);
+            bonus[i] = random.nextDouble() * 3;
+        }
+        double[] gameTerm = {20, 10, Double.NEGATIVE_INFINITY, 20, 10, 20, 20};
+        double[] roleTerm = {0, 15, 25, 0, 15};
+        double[] personalityTerm = {-20, 6, 8};
+        double[] skillTerm = new double[10];
+        for (int s = 0; s < skillTerm.length; s++) {
+            skillTerm[s] = random.nextDouble() * 4;
+        }
+
+        BatchScorer scalar = new ScalarBatchScorer();
+        BatchScorer batch = BatchScorer.create();
+        double[] expected = new double[poolSize];
+        double[] actual = new double[poolSize];
+
+        scalar.score(poolSize, game, role, personality, skill, bonus,
+                gameTerm, roleTerm, personalityTerm, skillTerm, expected);
+        batch.score(poolSize, game, role, personality, skill, bonus,
+                gameTerm, roleTerm, personalityTerm, skillTerm, actual);
+        for (int i = 0; i < poolSize; i++) {
+            if (Double.compare(expected[i], actual[i]) != 0) {
+                System.err.printf("Mismatch at %d: scalar %f, %s %f%n",
+                        i, expected[i], batch.getClass().getSimpleName(), actual[i]);
+                System.exit(1);
+            }
+        }
+        System.out.println(batch.getClass().getSimpleName() + " matches the scalar scorer on " + poolSize + " candidates");
+
+        Pass scalarPass = () -> scalar.score(poolSize, game, role, personality, skill, bonus,
+                gameTerm, roleTerm, personalityTerm, skillTerm, expected);
+        Pass batchPass = () -> batch.score(poolSize, game, role, personality, skill, bonus,
+                gameTerm, roleTerm, personalityTerm, skillTerm, actual);
+        for (int i = 0; i < ROUNDS; i++) {
+            scalarPass.run();
+            batchPass.run();
+        }
+
+        double[] scalarNanos = new double[TRIALS];
+        double[] batchNanos = new double[TRIALS];
+        for (int trial = 0; trial < TRIALS; trial++) {
+            if (trial % 2 == 0) {
+                scalarNanos[trial] = time(scalarPass);
+                batchNanos[trial] = time(batchPass);
+            } else {
+                batchNanos[trial] = time(batchPass);
+                scalarNanos[trial] = time(scalarPass);
+            }
+        }
+        double scalarMedian = median(scalarNanos);
+        double batchMedian = median(batchNanos);
+
+        System.out.printf("Scalar: %.3f ms per pass%n", scalarMedian / 1e6);
+        System.out.printf("%s: %.3f ms per pass (%.2fx)%n",
+                batch.getClass().getSimpleName(), batchMedian / 1e6, scalarMedian / batchMedian);
+    }
+
+    private interface Pass {
+        void run();
+    }
+
+    //Average time of one pass over ROUNDS passes
+    private static double time(Pass pass) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            pass.run();
+        }
+        return (double) (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
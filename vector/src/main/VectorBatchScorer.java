@@ -0,0 +1,36 @@
+package main;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BatchScorer on the incubating Vector API: the four term lookups are gathers and
+ * the sum is done one vector of candidates at a time. Needs
+ * --add-modules jdk.incubator.vector to compile and run, so it lives in its own
+ * source set (vector/src), compiled after src against its classes. The main sources
+ * never name this class: BatchScorer.create() loads it by name and falls back to the
+ * scalar scorer when the module or the class is missing.
+ */
+public class VectorBatchScorer implements BatchScorer {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void score(int count, int[] game, int[] role, int[] personality, int[] skill, double[] bonus,
+                      double[] gameTerm, double[] roleTerm, double[] personalityTerm, double[] skillTerm,
+                      double[] out) {
+        int i = 0;
+        int upperBound = SPECIES.loopBound(count);
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector sum = DoubleVector.fromArray(SPECIES, gameTerm, 0, game, i)
+                    .add(DoubleVector.fromArray(SPECIES, roleTerm, 0, role, i))
+                    .add(DoubleVector.fromArray(SPECIES, personalityTerm, 0, personality, i))
+                    .sub(DoubleVector.fromArray(SPECIES, skillTerm, 0, skill, i).mul(2))
+                    .add(DoubleVector.fromArray(SPECIES, bonus, i));
+            sum.intoArray(out, i);
+        }
+        for (; i < count; i++) {
+            out[i] = gameTerm[game[i]] + roleTerm[role[i]] + personalityTerm[personality[i]]
+                    - skillTerm[skill[i]] * 2 + bonus[i];
+        }
+    }
+}